@@ -0,0 +1,312 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.daemon;
+
+import org.symqle.processor.CompilationReport;
+import org.symqle.processor.SourceCache;
+import org.symqle.processor.SymqleCompiler;
+import org.symqle.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-living compiler process, which accepts compilation requests on a loopback socket.
+ * The compiler stays JIT-compiled between builds and reuses syntax trees of unchanged sources.
+ * Port and a random access token are published in a daemon file readable by the owner only;
+ * {@link DaemonClient} finds the daemon through this file. Requests are processed concurrently.
+ * <p>
+ * Usage: {@code java -cp symqle-compiler.jar org.symqle.daemon.CompilerDaemon [daemonFile]}
+ * @author Alexander Izyurov
+ */
+public final class CompilerDaemon {
+
+    private static final int BACKLOG = 16;
+    // a client, which does not send a complete request in this time, is disconnected
+    private static final int REQUEST_TIMEOUT_MILLIS = 30000;
+    private static final int TOKEN_BYTES = 16;
+
+    private final File daemonFile;
+    private final String token;
+    private final SourceCache sourceCache = new SourceCache();
+    private final SymqleCompiler compiler;
+    private final ExecutorService connections = Executors.newCachedThreadPool(CONNECTION_THREAD_FACTORY);
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * Constructs a daemon, which uses one parser and writer thread per available processor.
+     * @param daemonFile where to publish port and token
+     */
+    public CompilerDaemon(final File daemonFile) {
+        this.daemonFile = daemonFile;
+        this.token = newToken();
+        final int threads = Runtime.getRuntime().availableProcessors();
+        this.compiler = new SymqleCompiler(threads, threads, sourceCache);
+    }
+
+    /**
+     * Starts listening on a free loopback port and publishes the daemon file.
+     * Requests are not accepted until {@link #serve()} is called.
+     * @return the port
+     * @throws IOException failed to open socket or write daemon file
+     */
+    public int start() throws IOException {
+        serverSocket = new ServerSocket(0, BACKLOG, InetAddress.getLoopbackAddress());
+        Protocol.writeDaemonFile(daemonFile, serverSocket.getLocalPort(), token, SymqleCompiler.compilerBuild());
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts requests until {@link #stop()} is called.
+     * @throws IOException socket failure
+     */
+    public void serve() throws IOException {
+        final ServerSocket server = serverSocket;
+        if (server == null) {
+            throw new IllegalStateException("Not started");
+        }
+        while (!server.isClosed()) {
+            final Socket socket;
+            try {
+                socket = server.accept();
+            } catch (SocketException e) {
+                if (server.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            connections.execute(new Runnable() {
+                @Override
+                public void run() {
+                    handle(socket);
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops accepting requests and removes the daemon file.
+     * Compilations in progress are interrupted.
+     */
+    public void stop() {
+        final ServerSocket server = serverSocket;
+        if (server != null) {
+            try {
+                server.close();
+            } catch (IOException e) {
+                // ignore: closing anyway
+            }
+        }
+        connections.shutdownNow();
+        try {
+            final Protocol.DaemonAddress published = Protocol.readDaemonFile(daemonFile);
+            // do not remove the file of another daemon, which has been started after this one
+            if (published != null && published.getToken().equals(token)) {
+                daemonFile.delete();
+            }
+        } catch (IOException e) {
+            // ignore: clients will fail to connect and fall back to in-process compilation
+        }
+    }
+
+    /**
+     * Number of sources, which syntax trees are kept for reuse.
+     * @return the number
+     */
+    public int getCachedSources() {
+        return sourceCache.size();
+    }
+
+    private void handle(final Socket socket) {
+        try {
+            try {
+                socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+                final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+                final Response out = new Response(new OutputStreamWriter(socket.getOutputStream(), "UTF-8"));
+                final Request request = Request.read(in, token);
+                if (request == null) {
+                    out.send(Protocol.FAILED, IOException.class.getName(), "Bad request");
+                    return;
+                }
+                socket.setSoTimeout(0);
+                compile(request, out);
+            } finally {
+                socket.close();
+            }
+        } catch (IOException e) {
+            // client has gone; nothing to report to
+            Log.debug("Daemon connection failed: " + e);
+        }
+    }
+
+    private void compile(final Request request, final Response out) throws IOException {
+        final Log previousLog = Log.setLog(new Log() {
+            @Override
+            public void logInfo(final String message) {
+                out.sendQuietly(Protocol.INFO, message);
+            }
+
+            @Override
+            public void logDebug(final String message) {
+                out.sendQuietly(Protocol.DEBUG, message);
+            }
+        });
+        try {
+            final CompilationReport report = compiler.doAll(request.sources.toArray(new File[request.sources.size()]),
+                    request.outputDirectory, request.testOutputDirectory, request.dependencyFile);
+            out.send(Protocol.REPORT, report.toJson());
+            out.send(Protocol.OK);
+        } catch (Exception e) {
+            out.send(Protocol.FAILED, e.getClass().getName(), String.valueOf(e.getMessage()));
+        } finally {
+            Log.setLog(previousLog);
+        }
+    }
+
+    private static String newToken() {
+        final byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        final StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(String.format("%02x", b & 0xff));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Starts the daemon and serves requests until the process is terminated.
+     * @param args optional daemon file location; {@link DaemonClient#defaultDaemonFile()} by default
+     * @throws IOException socket failure
+     */
+    public static void main(final String[] args) throws IOException {
+        final File daemonFile = args.length > 0 ? new File(args[0]) : DaemonClient.defaultDaemonFile();
+        final CompilerDaemon daemon = new CompilerDaemon(daemonFile);
+        final int port = daemon.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                daemon.stop();
+            }
+        }));
+        Log.info("Symqle compiler daemon " + SymqleCompiler.COMPILER_VERSION + " listening on port " + port);
+        daemon.serve();
+    }
+
+    /**
+     * Compilation request.
+     */
+    private static final class Request {
+        private final List<File> sources = new ArrayList<File>();
+        private File outputDirectory;
+        private File testOutputDirectory;
+        private File dependencyFile;
+
+        /**
+         * Reads a request.
+         * @return the request; null if the request is malformed or the token is wrong
+         */
+        private static Request read(final BufferedReader in, final String token) throws IOException {
+            if (!Protocol.HEADER.equals(in.readLine())) {
+                return null;
+            }
+            final String tokenLine = in.readLine();
+            if (tokenLine == null || !Protocol.fields(tokenLine).equals(Arrays.asList(Protocol.TOKEN, token))) {
+                return null;
+            }
+            final Request request = new Request();
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                final List<String> fields = Protocol.fields(line);
+                final String key = fields.get(0);
+                if (key.equals(Protocol.COMPILE) && fields.size() == 1) {
+                    return request.outputDirectory == null || request.testOutputDirectory == null
+                            ? null
+                            : request;
+                } else if (fields.size() != 2) {
+                    return null;
+                }
+                final File file = new File(fields.get(1));
+                if (key.equals(Protocol.SOURCE)) {
+                    request.sources.add(file);
+                } else if (key.equals(Protocol.OUTPUT)) {
+                    request.outputDirectory = file;
+                } else if (key.equals(Protocol.TEST_OUTPUT)) {
+                    request.testOutputDirectory = file;
+                } else if (key.equals(Protocol.DEPENDENCIES)) {
+                    request.dependencyFile = file;
+                } else {
+                    return null;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Writes response lines; log messages may come from several compiler threads.
+     */
+    private static final class Response {
+        private final Writer writer;
+        private boolean broken;
+
+        private Response(final Writer writer) {
+            this.writer = writer;
+        }
+
+        private synchronized void send(final String... fields) throws IOException {
+            writer.write(Protocol.line(fields));
+            writer.write('\n');
+            writer.flush();
+        }
+
+        private synchronized void sendQuietly(final String... fields) {
+            if (!broken) {
+                try {
+                    send(fields);
+                } catch (IOException e) {
+                    // compilation goes on, the result is reported (or not) at the end
+                    broken = true;
+                }
+            }
+        }
+    }
+
+    private static final ThreadFactory CONNECTION_THREAD_FACTORY = new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "symqle-daemon-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+}
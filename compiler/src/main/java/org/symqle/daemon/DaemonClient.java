@@ -0,0 +1,140 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.daemon;
+
+import org.symqle.processor.SymqleCompiler;
+import org.symqle.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * Connection to a running {@link CompilerDaemon}. Each connection serves one compilation.
+ * @author Alexander Izyurov
+ */
+public final class DaemonClient {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+
+    private final Socket socket;
+    private final String token;
+
+    private DaemonClient(final Socket socket, final String token) {
+        this.socket = socket;
+        this.token = token;
+    }
+
+    /**
+     * Default location of the daemon file: .symqle/daemon in user home directory.
+     * @return the file
+     */
+    public static File defaultDaemonFile() {
+        return new File(new File(System.getProperty("user.home"), ".symqle"), "daemon");
+    }
+
+    /**
+     * Connects to the daemon published in the daemon file.
+     * @param daemonFile the file written by the daemon
+     * @return connected client; null if no daemon of the same compiler build is running
+     * @throws IOException failure to read the daemon file
+     */
+    public static DaemonClient connect(final File daemonFile) throws IOException {
+        final Protocol.DaemonAddress address = Protocol.readDaemonFile(daemonFile);
+        if (address == null || !address.getCompilerVersion().equals(SymqleCompiler.compilerBuild())) {
+            return null;
+        }
+        final Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), address.getPort()),
+                    CONNECT_TIMEOUT_MILLIS);
+        } catch (IOException e) {
+            // stale daemon file
+            socket.close();
+            return null;
+        }
+        return new DaemonClient(socket, address.getToken());
+    }
+
+    /**
+     * Compiles in the daemon as {@link SymqleCompiler#doAll(File[], File, File, File)} does and closes connection.
+     * @param sources source sdl files
+     * @param outputDirectory output directory for production code
+     * @param testOutputDirectory output directory for test code
+     * @param dependencyFile dependency graph of previous compilation; null means no incremental compilation
+     * @param log receives log messages of the compilation
+     * @return compilation report as JSON
+     * @throws IOException communication failure
+     * @throws RemoteCompilationException compilation failed in the daemon
+     */
+    public String compile(final File[] sources,
+                          final File outputDirectory,
+                          final File testOutputDirectory,
+                          final File dependencyFile,
+                          final Log log) throws IOException, RemoteCompilationException {
+        try {
+            final Writer out = new OutputStreamWriter(socket.getOutputStream(), "UTF-8");
+            send(out, Protocol.HEADER);
+            send(out, Protocol.TOKEN, token);
+            for (File source : sources) {
+                send(out, Protocol.SOURCE, source.getAbsolutePath());
+            }
+            send(out, Protocol.OUTPUT, outputDirectory.getAbsolutePath());
+            send(out, Protocol.TEST_OUTPUT, testOutputDirectory.getAbsolutePath());
+            if (dependencyFile != null) {
+                send(out, Protocol.DEPENDENCIES, dependencyFile.getAbsolutePath());
+            }
+            send(out, Protocol.COMPILE);
+            out.flush();
+
+            final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+            String report = null;
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                final List<String> fields = Protocol.fields(line);
+                final String key = fields.get(0);
+                if (key.equals(Protocol.INFO) && fields.size() == 2) {
+                    log.logInfo(fields.get(1));
+                } else if (key.equals(Protocol.DEBUG) && fields.size() == 2) {
+                    log.logDebug(fields.get(1));
+                } else if (key.equals(Protocol.REPORT) && fields.size() == 2) {
+                    report = fields.get(1);
+                } else if (key.equals(Protocol.OK) && report != null) {
+                    return report;
+                } else if (key.equals(Protocol.FAILED) && fields.size() == 3) {
+                    throw new RemoteCompilationException(fields.get(1), fields.get(2));
+                } else {
+                    throw new IOException("Unexpected daemon response: " + line);
+                }
+            }
+            throw new IOException("Daemon closed connection");
+        } finally {
+            socket.close();
+        }
+    }
+
+    private static void send(final Writer out, final String... fields) throws IOException {
+        out.write(Protocol.line(fields));
+        out.write('\n');
+    }
+}
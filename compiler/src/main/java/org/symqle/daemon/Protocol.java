@@ -0,0 +1,225 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.daemon;
+
+import org.symqle.processor.SymqleCompiler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire format shared by {@link CompilerDaemon} and {@link DaemonClient}.
+ * Both the daemon file and the conversation are UTF-8 lines of tab-separated fields;
+ * backslash, tab and line breaks inside fields are escaped.
+ * @author Alexander Izyurov
+ */
+final class Protocol {
+
+    static final String HEADER = "symqle-daemon v1";
+
+    static final String TOKEN = "token";
+    static final String SOURCE = "source";
+    static final String OUTPUT = "output";
+    static final String TEST_OUTPUT = "testOutput";
+    static final String DEPENDENCIES = "dependencies";
+    static final String COMPILE = "compile";
+
+    static final String INFO = "info";
+    static final String DEBUG = "debug";
+    static final String REPORT = "report";
+    static final String OK = "ok";
+    static final String FAILED = "failed";
+
+    static final String PORT = "port";
+    static final String COMPILER = "compiler";
+
+    private static final char SEPARATOR = '\t';
+
+    private Protocol() {
+    }
+
+    /**
+     * Joins fields to a line, escaping special characters.
+     * @param fields the fields
+     * @return line without line break
+     */
+    static String line(final String... fields) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                builder.append(SEPARATOR);
+            }
+            final String field = fields[i];
+            for (int j = 0; j < field.length(); j++) {
+                final char c = field.charAt(j);
+                switch (c) {
+                    case '\\':
+                        builder.append("\\\\");
+                        break;
+                    case '\t':
+                        builder.append("\\t");
+                        break;
+                    case '\n':
+                        builder.append("\\n");
+                        break;
+                    case '\r':
+                        builder.append("\\r");
+                        break;
+                    default:
+                        builder.append(c);
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Splits a line written by {@link #line(String...)} to fields.
+     * @param line the line
+     * @return unescaped fields
+     */
+    static List<String> fields(final String line) {
+        final List<String> fields = new ArrayList<String>();
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (c == SEPARATOR) {
+                fields.add(builder.toString());
+                builder.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                final char escaped = line.charAt(++i);
+                builder.append(escaped == 't' ? '\t' : escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+            } else {
+                builder.append(c);
+            }
+        }
+        fields.add(builder.toString());
+        return fields;
+    }
+
+    /**
+     * Writes the file, which tells clients how to reach a running daemon.
+     * The file is readable by the owner only, because the token grants right to compile.
+     * @param file where to write
+     * @param port listening port on loopback interface
+     * @param token secret, which clients should present
+     * @param compilerVersion build of the daemon compiler, see {@link SymqleCompiler#compilerBuild()}
+     * @throws IOException write failure
+     */
+    static void writeDaemonFile(final File file, final int port, final String token, final String compilerVersion)
+            throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Failed to create " + parent);
+        }
+        final File temp = new File(parent, file.getName() + ".tmp");
+        // restrict permissions before the token is written
+        final FileOutputStream stream = new FileOutputStream(temp);
+        temp.setReadable(false, false);
+        temp.setReadable(true, true);
+        final PrintWriter out = new PrintWriter(new OutputStreamWriter(stream, "UTF-8"));
+        try {
+            out.println(HEADER);
+            out.println(line(PORT, String.valueOf(port)));
+            out.println(line(TOKEN, token));
+            out.println(line(COMPILER, compilerVersion));
+        } finally {
+            out.close();
+        }
+        if (out.checkError()) {
+            throw new IOException("Failed to write " + temp);
+        }
+        if ((file.exists() && !file.delete()) || !temp.renameTo(file)) {
+            throw new IOException("Failed to write " + file);
+        }
+    }
+
+    /**
+     * Reads the file written by {@link #writeDaemonFile(File, int, String, String)}.
+     * @param file where to read from
+     * @return port, token and compiler build; null if the file does not exist or is not valid
+     * @throws IOException read failure
+     */
+    static DaemonAddress readDaemonFile(final File file) throws IOException {
+        final BufferedReader reader;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        try {
+            if (!HEADER.equals(reader.readLine())) {
+                return null;
+            }
+            final String port = value(reader.readLine(), PORT);
+            final String token = value(reader.readLine(), TOKEN);
+            final String compilerVersion = value(reader.readLine(), COMPILER);
+            if (port == null || token == null || compilerVersion == null) {
+                return null;
+            }
+            return new DaemonAddress(Integer.parseInt(port), token, compilerVersion);
+        } catch (NumberFormatException e) {
+            return null;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static String value(final String line, final String key) {
+        if (line == null) {
+            return null;
+        }
+        final List<String> fields = fields(line);
+        return fields.size() == 2 && fields.get(0).equals(key) ? fields.get(1) : null;
+    }
+
+    /**
+     * Content of the daemon file.
+     */
+    static final class DaemonAddress {
+        private final int port;
+        private final String token;
+        private final String compilerVersion;
+
+        private DaemonAddress(final int port, final String token, final String compilerVersion) {
+            this.port = port;
+            this.token = token;
+            this.compilerVersion = compilerVersion;
+        }
+
+        int getPort() {
+            return port;
+        }
+
+        String getToken() {
+            return token;
+        }
+
+        String getCompilerVersion() {
+            return compilerVersion;
+        }
+    }
+}
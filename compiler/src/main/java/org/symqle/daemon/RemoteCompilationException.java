@@ -0,0 +1,50 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.daemon;
+
+/**
+ * Compilation performed by {@link CompilerDaemon} has failed.
+ * The message is the message of the original exception, so it contains source location, if known.
+ * @author Alexander Izyurov
+ */
+public class RemoteCompilationException extends Exception {
+
+    private final String remoteClassName;
+
+    /**
+     * Constructs with class name and message of the exception thrown in the daemon.
+     * @param remoteClassName exception class name
+     * @param message exception message
+     */
+    public RemoteCompilationException(final String remoteClassName, final String message) {
+        super(message);
+        this.remoteClassName = remoteClassName;
+    }
+
+    /**
+     * Class name of the exception thrown in the daemon, like org.symqle.parser.ParseException.
+     * @return the class name
+     */
+    public final String getRemoteClassName() {
+        return remoteClassName;
+    }
+
+    @Override
+    public final String toString() {
+        return remoteClassName + ": " + getMessage();
+    }
+}
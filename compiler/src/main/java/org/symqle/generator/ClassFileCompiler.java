@@ -0,0 +1,120 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.generator;
+
+import org.symqle.util.Log;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compiles sources generated in memory to class files with the system Java compiler,
+ * without writing java sources to disk. Compilation errors are reported with
+ * source references of sdl elements, which have produced erroneous code.
+ * @author Alexander Izyurov
+ */
+public final class ClassFileCompiler {
+
+    private final List<File> classpath;
+    private final List<String> options;
+
+    /**
+     * Constructs a compiler.
+     * @param classpath libraries and class directories, which generated code depends on
+     * @param options additional javac options, like "-source", "1.7"
+     */
+    public ClassFileCompiler(final List<File> classpath, final List<String> options) {
+        this.classpath = new ArrayList<File>(classpath);
+        this.options = new ArrayList<String>(options);
+    }
+
+    /**
+     * Compiles sources.
+     * @param sources qualified name to rendered source, as returned by {@link WriterGenerator#render}
+     * @param classesDirectory where to write class files; created if missing
+     * @throws IOException no system Java compiler (running on JRE) or write failure
+     * @throws JavacException compilation errors
+     */
+    public void compile(final Map<String, RenderedSource> sources, final File classesDirectory)
+            throws IOException, JavacException {
+        if (sources.isEmpty()) {
+            return;
+        }
+        final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) {
+            throw new IOException("System Java compiler is not available; JDK is required");
+        }
+        if (!classesDirectory.mkdirs() && !classesDirectory.isDirectory()) {
+            throw new IOException("Failed to create " + classesDirectory);
+        }
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        final StandardJavaFileManager fileManager =
+                javac.getStandardFileManager(diagnostics, null, Charset.forName("UTF-8"));
+        try {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(classesDirectory));
+            fileManager.setLocation(StandardLocation.CLASS_PATH, classpath);
+            final List<JavaFileObject> units = GeneratedSources.fileObjects(sources);
+            final Map<JavaFileObject, String> names = new IdentityHashMap<JavaFileObject, String>();
+            int i = 0;
+            for (String qualifiedName : sources.keySet()) {
+                names.put(units.get(i++), qualifiedName);
+            }
+            final boolean success = javac.getTask(null, fileManager, diagnostics, options, null, units).call();
+            final List<String> errors = new ArrayList<String>();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                final String message = describe(diagnostic, names, sources);
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    errors.add(message);
+                } else {
+                    Log.debug(message);
+                }
+            }
+            if (!success) {
+                throw new JavacException(errors);
+            }
+        } finally {
+            fileManager.close();
+        }
+    }
+
+    private static String describe(final Diagnostic<? extends JavaFileObject> diagnostic,
+                                   final Map<JavaFileObject, String> names,
+                                   final Map<String, RenderedSource> sources) {
+        final String message = diagnostic.getMessage(Locale.getDefault());
+        final String qualifiedName = diagnostic.getSource() == null ? null : names.get(diagnostic.getSource());
+        if (qualifiedName == null) {
+            return message;
+        }
+        final long line = diagnostic.getLineNumber();
+        final String sourceRef = line == Diagnostic.NOPOS ? null : sources.get(qualifiedName).getSourceRef(line);
+        return (sourceRef == null ? "" : sourceRef + ": ") + message + " [" + qualifiedName + ":" + line + "]";
+    }
+}
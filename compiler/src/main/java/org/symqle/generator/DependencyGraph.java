@@ -0,0 +1,305 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.generator;
+
+import org.symqle.model.AbstractTypeDefinition;
+import org.symqle.model.ImplicitConversion;
+import org.symqle.model.MethodDefinition;
+import org.symqle.model.Model;
+import org.symqle.model.ModelException;
+import org.symqle.model.Type;
+import org.symqle.util.SourceFingerprints;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Sdl source files, which contribute to each generated type.
+ * A type depends on the source of its declaration and of its methods (including productions,
+ * which add methods to Symqle, Dialect etc.), on the same for all its ancestors, on implicit conversions
+ * from itself and its ancestors, on anonymous classes returned by its methods and on types registered
+ * by {@link AbstractTypeDefinition#addOrigin(AbstractTypeDefinition)}.
+ * It depends on the sources of production rules for the type too: they are listed in its javadoc.
+ * It also depends on all explicit Symqle methods, which have the same reduced signature as the methods
+ * taking the type or its ancestors as the first argument: they decide whether these methods are ambiguous.
+ * Generated types are grouped by root, e.g. "main" and "test" for different output directories.
+ * Sources are identified by file name, like source references in the model.
+ * The graph also keeps {@link SourceFingerprints} of the sources to detect changes,
+ * and identity of the compiler build, which has created it.
+ * @author Alexander Izyurov
+ */
+public final class DependencyGraph {
+
+    private static final String HEADER = "# symqle dependency graph v3";
+    private static final String SEPARATOR = SourceFingerprints.SEPARATOR;
+
+    private final String compilerBuild;
+    private final SourceFingerprints fingerprints = new SourceFingerprints();
+    private final Map<String, Map<String, Set<String>>> typeSources = new TreeMap<String, Map<String, Set<String>>>();
+
+    /**
+     * Constructs empty graph.
+     * @param compilerBuild identity of the compiler build, which creates the graph,
+     * see {@link org.symqle.processor.SymqleCompiler#compilerBuild()}
+     */
+    public DependencyGraph(final String compilerBuild) {
+        this.compilerBuild = compilerBuild;
+    }
+
+    /**
+     * Identity of the compiler build, which has created the graph.
+     * @return the identity
+     */
+    public String getCompilerBuild() {
+        return compilerBuild;
+    }
+
+    /**
+     * Registers a source file with hash of its current content.
+     * The hash is taken from previous graph if size and modification time of the file are the same.
+     * @param source sdl file
+     * @param previous the graph of previous compilation; null if not available
+     * @throws IOException read failure
+     */
+    public void addSource(final File source, final DependencyGraph previous) throws IOException {
+        fingerprints.add(source, previous == null ? null : previous.fingerprints);
+    }
+
+    /**
+     * Registers generated types and computes their dependencies.
+     * @param root group of the types, e.g. "main"
+     * @param types qualified name to type definition
+     * @param model the model containing definitions
+     * @throws ModelException wrong model
+     */
+    public void addTypes(final String root, final Map<String, AbstractTypeDefinition> types, final Model model)
+            throws ModelException {
+        final Map<String, Set<String>> rootTypes = rootTypes(root);
+        for (Map.Entry<String, AbstractTypeDefinition> entry : types.entrySet()) {
+            rootTypes.put(entry.getKey(), sourcesOf(entry.getValue(), model));
+        }
+    }
+
+    /**
+     * Qualified names of generated types in a root.
+     * @param root group of the types
+     * @return immutable set of names
+     */
+    public Set<String> getTypes(final String root) {
+        final Map<String, Set<String>> rootTypes = typeSources.get(root);
+        return rootTypes == null
+                ? Collections.<String>emptySet()
+                : Collections.unmodifiableSet(rootTypes.keySet());
+    }
+
+    /**
+     * Sources, which a generated type depends on.
+     * @param root group of the types
+     * @param qualifiedName qualified name of the type
+     * @return immutable set of source file names; null if the type is not registered
+     */
+    public Set<String> getSources(final String root, final String qualifiedName) {
+        final Map<String, Set<String>> rootTypes = typeSources.get(root);
+        final Set<String> sources = rootTypes == null ? null : rootTypes.get(qualifiedName);
+        return sources == null ? null : Collections.unmodifiableSet(sources);
+    }
+
+    /**
+     * Checks whether a generated type depends on any of given sources.
+     * @param root group of the types
+     * @param qualifiedName qualified name of the type
+     * @param sourceNames source file names
+     * @return true if the type is registered and depends on at least one of sourceNames
+     */
+    public boolean dependsOnAny(final String root, final String qualifiedName, final Set<String> sourceNames) {
+        final Set<String> sources = getSources(root, qualifiedName);
+        return sources != null && !Collections.disjoint(sources, sourceNames);
+    }
+
+    /**
+     * Sources, which are new, removed or have different content since previous graph was created.
+     * @param previous the graph of previous compilation
+     * @return names of changed sources
+     */
+    public Set<String> changedSources(final DependencyGraph previous) {
+        return fingerprints.changedSince(previous.fingerprints);
+    }
+
+    /**
+     * Sources, which a type depends on.
+     * @param def the type
+     * @param model the model containing definitions
+     * @return source file names
+     * @throws ModelException wrong model
+     */
+    public static Set<String> sourcesOf(final AbstractTypeDefinition def, final Model model) throws ModelException {
+        final Set<String> sources = new TreeSet<String>();
+        final Set<AbstractTypeDefinition> visited = new HashSet<AbstractTypeDefinition>();
+        addSources(def, model, sources, visited);
+        for (AbstractTypeDefinition origin : def.getOrigins()) {
+            addSources(origin, model, sources, visited);
+        }
+        for (String ruleSourceRef : model.getRuleSourceRefs(def.getName())) {
+            addSource(ruleSourceRef, sources);
+        }
+        return sources;
+    }
+
+    private static void addSources(final AbstractTypeDefinition def,
+                                   final Model model,
+                                   final Set<String> sources,
+                                   final Set<AbstractTypeDefinition> visited) throws ModelException {
+        if (!visited.add(def)) {
+            return;
+        }
+        addOwnSources(def, model, sources, visited);
+        final Set<String> names = new HashSet<String>();
+        names.add(def.getName());
+        for (Type ancestor : def.getAllAncestors(model)) {
+            names.add(ancestor.getSimpleName());
+            final AbstractTypeDefinition ancestorDef = model.getAbstractType(ancestor.getSimpleName());
+            if (ancestorDef != null && visited.add(ancestorDef)) {
+                addOwnSources(ancestorDef, model, sources, visited);
+            }
+        }
+        // conversions may add ancestors; removed conversions are caught by the previous graph
+        for (String name : names) {
+            for (ImplicitConversion conversion : model.getConversionsFrom(name)) {
+                addSource(conversion.getConversionMethod().getSourceRef(), sources);
+            }
+            // a method added to another type may make a delegate method of this type ambiguous
+            for (MethodDefinition method : model.getExplicitSymqleMethods(name)) {
+                for (MethodDefinition sameSignature
+                        : model.getExplicitSymqleMethodsWithReducedSignature(model.reducedSignature(method))) {
+                    addSource(sameSignature.getSourceRef(), sources);
+                }
+            }
+        }
+    }
+
+    private static void addOwnSources(final AbstractTypeDefinition def,
+                                      final Model model,
+                                      final Set<String> sources,
+                                      final Set<AbstractTypeDefinition> visited) throws ModelException {
+        addSource(def.getSourceRef(), sources);
+        for (MethodDefinition method : def.getDeclaredMethods()) {
+            addSource(method.getSourceRef(), sources);
+            addSource(method.getDeclarationRef(), sources);
+            final AbstractTypeDefinition anonymousClass = model.getAnonymousClassByMethod(method);
+            if (anonymousClass != null) {
+                addSources(anonymousClass, model, sources, visited);
+            }
+        }
+    }
+
+    private static void addSource(final String sourceRef, final Set<String> sources) {
+        if (sourceRef != null) {
+            final int colon = sourceRef.lastIndexOf(':');
+            sources.add(colon < 0 ? sourceRef : sourceRef.substring(0, colon));
+        }
+    }
+
+    private Map<String, Set<String>> rootTypes(final String root) {
+        Map<String, Set<String>> rootTypes = typeSources.get(root);
+        if (rootTypes == null) {
+            rootTypes = new TreeMap<String, Set<String>>();
+            typeSources.put(root, rootTypes);
+        }
+        return rootTypes;
+    }
+
+    /**
+     * Writes the graph to a file.
+     * @param file where to write
+     * @throws IOException write failure
+     */
+    public void store(final File file) throws IOException {
+        final PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            out.println(HEADER);
+            out.println("compiler" + SEPARATOR + compilerBuild);
+            fingerprints.store(out);
+            for (Map.Entry<String, Map<String, Set<String>>> rootEntry : typeSources.entrySet()) {
+                for (Map.Entry<String, Set<String>> entry : rootEntry.getValue().entrySet()) {
+                    out.print("type" + SEPARATOR + rootEntry.getKey() + SEPARATOR + entry.getKey());
+                    for (String source : entry.getValue()) {
+                        out.print(SEPARATOR + source);
+                    }
+                    out.println();
+                }
+            }
+        } finally {
+            out.close();
+        }
+        if (out.checkError()) {
+            throw new IOException("Failed to write " + file);
+        }
+    }
+
+    /**
+     * Reads the graph written by {@link #store(java.io.File)}.
+     * @param file where to read from
+     * @return the graph; null if the file does not exist or is not a valid graph
+     * @throws IOException read failure
+     */
+    public static DependencyGraph load(final File file) throws IOException {
+        final BufferedReader reader;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        try {
+            if (!HEADER.equals(reader.readLine())) {
+                return null;
+            }
+            final String[] compiler = SourceFingerprints.split(reader.readLine());
+            if (compiler.length != 2 || !compiler[0].equals("compiler")) {
+                return null;
+            }
+            final DependencyGraph graph = new DependencyGraph(compiler[1]);
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                final String[] fields = SourceFingerprints.split(line);
+                if (fields[0].equals("type") && fields.length >= 3) {
+                    final Set<String> sources = new TreeSet<String>();
+                    for (int i = 3; i < fields.length; i++) {
+                        sources.add(fields[i]);
+                    }
+                    graph.rootTypes(fields[1]).put(fields[2], sources);
+                } else if (!graph.fingerprints.load(fields)) {
+                    return null;
+                }
+            }
+            return graph;
+        } finally {
+            reader.close();
+        }
+    }
+}
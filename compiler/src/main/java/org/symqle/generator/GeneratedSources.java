@@ -0,0 +1,125 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.generator;
+
+import org.symqle.processor.CompilationReport;
+
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Java sources generated in memory: production ("main") and test sets.
+ * Sources are available as text and as {@link JavaFileObject}s, which can be passed
+ * to {@link javax.tools.JavaCompiler} directly.
+ * @author Alexander Izyurov
+ */
+public final class GeneratedSources {
+
+    private final Map<String, CharSequence> main;
+    private final Map<String, CharSequence> test;
+    private final CompilationReport report;
+
+    /**
+     * Constructs from generated texts.
+     * @param main qualified name to source text of production code
+     * @param test qualified name to source text of test code
+     * @param report report of the compilation, which generated the sources
+     */
+    public GeneratedSources(final Map<String, ? extends CharSequence> main,
+                            final Map<String, ? extends CharSequence> test,
+                            final CompilationReport report) {
+        this.main = Collections.unmodifiableMap(new LinkedHashMap<String, CharSequence>(main));
+        this.test = Collections.unmodifiableMap(new LinkedHashMap<String, CharSequence>(test));
+        this.report = report;
+    }
+
+    /**
+     * Production code.
+     * @return immutable map of qualified name to source text
+     */
+    public Map<String, CharSequence> getMain() {
+        return main;
+    }
+
+    /**
+     * Test code.
+     * @return immutable map of qualified name to source text
+     */
+    public Map<String, CharSequence> getTest() {
+        return test;
+    }
+
+    /**
+     * Timings of compilation phases and model statistics.
+     * @return the report
+     */
+    public CompilationReport getReport() {
+        return report;
+    }
+
+    /**
+     * Production code as compilation units for javax.tools.
+     * @return source file objects
+     */
+    public List<JavaFileObject> getMainFileObjects() {
+        return fileObjects(main);
+    }
+
+    /**
+     * Test code as compilation units for javax.tools.
+     * @return source file objects
+     */
+    public List<JavaFileObject> getTestFileObjects() {
+        return fileObjects(test);
+    }
+
+    /**
+     * Converts sources to compilation units.
+     * @param sources qualified name to source text
+     * @return source file objects in iteration order of sources
+     */
+    static List<JavaFileObject> fileObjects(final Map<String, ? extends CharSequence> sources) {
+        final List<JavaFileObject> fileObjects = new ArrayList<JavaFileObject>(sources.size());
+        for (Map.Entry<String, ? extends CharSequence> entry : sources.entrySet()) {
+            fileObjects.add(new Source(entry.getKey(), entry.getValue()));
+        }
+        return fileObjects;
+    }
+
+    /**
+     * Generated source. URI is {@code string:///package/path/Name.java}, as javac expects for in-memory sources.
+     */
+    private static final class Source extends SimpleJavaFileObject {
+        private final CharSequence content;
+
+        private Source(final String qualifiedName, final CharSequence content) {
+            super(URI.create("string:///" + qualifiedName.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.content = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+}
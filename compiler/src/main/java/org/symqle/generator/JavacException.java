@@ -0,0 +1,49 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.generator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Generated code could not be compiled by Java compiler.
+ * Each error message starts with sdl source reference of the element, which has produced erroneous code.
+ * @author Alexander Izyurov
+ */
+public class JavacException extends Exception {
+
+    private final List<String> errors;
+
+    /**
+     * Constructs with error messages.
+     * @param errors messages, like "Grammar.sdl:12: incompatible types [org.symqle.sql.Symqle:34]"
+     */
+    public JavacException(final List<String> errors) {
+        super(errors.isEmpty() ? "Compilation failed" : errors.get(0)
+                + (errors.size() > 1 ? " (and " + (errors.size() - 1) + " more errors)" : ""));
+        this.errors = Collections.unmodifiableList(new ArrayList<String>(errors));
+    }
+
+    /**
+     * All error messages.
+     * @return immutable list
+     */
+    public final List<String> getErrors() {
+        return errors;
+    }
+}
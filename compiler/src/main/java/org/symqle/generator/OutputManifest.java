@@ -0,0 +1,121 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.generator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * List of files produced by the last generation into a directory.
+ * Used to delete files, which are not produced any more, without touching anything else.
+ * Paths are relative to the directory with '/' as separator. Each generator should have its own directory.
+ * @author Alexander Izyurov
+ */
+public final class OutputManifest {
+
+    /**
+     * Name of the manifest file in output directory.
+     */
+    public static final String FILE_NAME = "symqle.generated";
+
+    private OutputManifest() {
+    }
+
+    /**
+     * Files produced by the last generation.
+     * @param destDir output directory
+     * @return relative paths; empty if there is no manifest
+     * @throws IOException read failure
+     */
+    public static Set<String> load(final File destDir) throws IOException {
+        final BufferedReader reader;
+        try {
+            reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(new File(destDir, FILE_NAME)), "UTF-8"));
+        } catch (FileNotFoundException e) {
+            return Collections.emptySet();
+        }
+        try {
+            final Set<String> paths = new TreeSet<String>();
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (!line.isEmpty()) {
+                    paths.add(line);
+                }
+            }
+            return paths;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Records files produced by generation.
+     * @param destDir output directory
+     * @param paths relative paths of produced files
+     * @throws IOException write failure
+     */
+    public static void store(final File destDir, final Collection<String> paths) throws IOException {
+        final File file = new File(destDir, FILE_NAME);
+        final PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            for (String path : new TreeSet<String>(paths)) {
+                out.println(path);
+            }
+        } finally {
+            out.close();
+        }
+        if (out.checkError()) {
+            throw new IOException("Failed to write " + file);
+        }
+    }
+
+    /**
+     * Deletes files, which were produced by previous generation, but are not listed in the current manifest.
+     * @param destDir output directory
+     * @param previous relative paths loaded before the current generation
+     * @return number of deleted files
+     * @throws IOException delete failure
+     */
+    public static int prune(final File destDir, final Set<String> previous) throws IOException {
+        final Set<String> current = load(destDir);
+        int deleted = 0;
+        for (String path : previous) {
+            // never go outside of destDir, whatever is in the manifest
+            if (!current.contains(path) && !path.contains("..")) {
+                final File file = new File(destDir, path.replace('/', File.separatorChar));
+                if (file.exists()) {
+                    if (!file.delete()) {
+                        throw new IOException("Failed to delete " + file);
+                    }
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.generator;
+
+import org.symqle.model.SourceRefListener;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Java source generated in memory, which knows sdl source reference of each line.
+ * @author Alexander Izyurov
+ */
+public final class RenderedSource implements CharSequence {
+
+    private final CharSequence text;
+    // first line of an element (1-based) to its source reference
+    private final NavigableMap<Long, String> sourceRefs;
+
+    private RenderedSource(final CharSequence text, final NavigableMap<Long, String> sourceRefs) {
+        this.text = text;
+        this.sourceRefs = sourceRefs;
+    }
+
+    /**
+     * Source reference of a line, like "Grammar.sdl:12".
+     * @param line line number, 1-based
+     * @return source reference of the element, which contains the line; null if unknown
+     */
+    public String getSourceRef(final long line) {
+        final Map.Entry<Long, String> entry = sourceRefs.floorEntry(line);
+        return entry == null ? null : entry.getValue();
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public char charAt(final int index) {
+        return text.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        return text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+
+    /**
+     * Collects text and source references.
+     */
+    static final class Recorder implements Appendable, SourceRefListener {
+        private final StringBuilder text = new StringBuilder();
+        private final NavigableMap<Long, String> sourceRefs = new TreeMap<Long, String>();
+        private long line = 1;
+
+        @Override
+        public void startElement(final String sourceRef) {
+            if (sourceRef != null) {
+                sourceRefs.put(line, sourceRef);
+            }
+        }
+
+        @Override
+        public Appendable append(final CharSequence csq) {
+            // as StringBuilder does
+            final CharSequence nonNull = csq == null ? "null" : csq;
+            return append(nonNull, 0, nonNull.length());
+        }
+
+        @Override
+        public Appendable append(final CharSequence csq, final int start, final int end) {
+            final CharSequence nonNull = csq == null ? "null" : csq;
+            for (int i = start; i < end; i++) {
+                if (nonNull.charAt(i) == '\n') {
+                    line++;
+                }
+            }
+            text.append(nonNull, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(final char c) {
+            if (c == '\n') {
+                line++;
+            }
+            text.append(c);
+            return this;
+        }
+
+        RenderedSource toRenderedSource() {
+            return new RenderedSource(text, sourceRefs);
+        }
+    }
+}
@@ -17,19 +17,42 @@
 package org.symqle.generator;
 
 import org.symqle.model.AbstractTypeDefinition;
+import org.symqle.model.F;
 import org.symqle.model.Model;
+import org.symqle.model.SourceRefListener;
+import org.symqle.processor.CompilationReport;
+import org.symqle.util.CompilerEvent;
+import org.symqle.util.Utils;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * Generator, which uses PrintWriter to generate java sources.
  * For each class or interface it writes standard header and then the object to the writer.
  * Implementing classes define collection of classes/interfaces to get from the model for generation.
+ * Existing files with the same content are not rewritten, so that their timestamps are preserved.
+ * All files, which should be in the output, are listed in {@link OutputManifest}.
+ * Rendering and writing of each file is a separate task, so files may be emitted in parallel
+ * by {@link #submit(Model, File, F, Executor)}.
  * @author lvovich
  */
 public abstract class WriterGenerator implements Generator {
@@ -45,38 +68,198 @@ public abstract class WriterGenerator implements Generator {
 
     @Override
     public final void generate(final Model model, final File destDir) throws IOException {
-        final String[] packages = packageName.split("\\.");
-        File target = destDir;
-        for (String subdir: packages) {
-            target = new File(target, subdir);
-        }
-        final File targetDir = target;
+        generate(model, destDir, null);
+    }
+
+    /**
+     * Generate java sources for some of the types in the calling thread.
+     * @param model collection of class and interface definitions
+     * @param destDir generated sources directory (top level).
+     * @param filter takes qualified name of a type, returns false if the type should be skipped;
+     * null means no filtering
+     * @throws IOException write failure
+     */
+    public final void generate(final Model model, final File destDir,
+                               final F<String, Boolean, RuntimeException> filter) throws IOException {
+        submit(model, destDir, filter, CALLER_RUNS).await();
+    }
+
+    /**
+     * Starts generation of java sources for some of the types. Each file is rendered and written
+     * by a separate task executed by {@code executor}; filter is applied in the calling thread.
+     * Generation is complete when {@link Emission#await()} returns.
+     * @param model collection of class and interface definitions; should not be modified until completion
+     * @param destDir generated sources directory (top level).
+     * @param filter takes qualified name of a type, returns false if the type should be skipped;
+     * null means no filtering
+     * @param executor executes file tasks
+     * @return pending generation
+     * @throws IOException failure to create target directory
+     */
+    public final Emission submit(final Model model, final File destDir,
+                                 final F<String, Boolean, RuntimeException> filter,
+                                 final Executor executor) throws IOException {
+        return submit(model, destDir, filter, executor, null);
+    }
+
+    /**
+     * Starts generation as {@link #submit(Model, File, F, Executor)} does and adds CPU time and allocated bytes
+     * of file tasks to a phase measurement. The measurement should be finished after {@link Emission#await()}.
+     * @param model collection of class and interface definitions; should not be modified until completion
+     * @param destDir generated sources directory (top level).
+     * @param filter takes qualified name of a type, returns false if the type should be skipped;
+     * null means no filtering
+     * @param executor executes file tasks
+     * @param measurement the phase, which file tasks belong to; null means no measurement
+     * @return pending generation
+     * @throws IOException failure to create target directory
+     */
+    public final Emission submit(final Model model, final File destDir,
+                                 final F<String, Boolean, RuntimeException> filter,
+                                 final Executor executor,
+                                 final CompilationReport.Measurement measurement) throws IOException {
+        final File targetDir = new File(destDir, packageName.replace('.', File.separatorChar));
         if (!targetDir.mkdirs() && !targetDir.isDirectory()) {
             throw new IOException("Failed to create " + targetDir);
         }
         final Package myPackage = getClass().getPackage();
         final String myTitle = myPackage.getImplementationTitle();
         final String myVersion = myPackage.getImplementationVersion();
-        for (AbstractTypeDefinition def : processedTypes(model)) {
-            final String fileName = def.getName() + ".java";
-            PrintWriter out = new PrintWriter(
-                    new OutputStreamWriter(
-                            new FileOutputStream(new File(targetDir, fileName)), "UTF-8"));
+        final Map<String, AbstractTypeDefinition> types = generatedTypes(model);
+        final List<FutureTask<Boolean>> tasks = new ArrayList<FutureTask<Boolean>>(types.size());
+        for (Map.Entry<String, AbstractTypeDefinition> entry : types.entrySet()) {
+            if (filter != null && !filter.apply(entry.getKey())) {
+                continue;
+            }
+            final AbstractTypeDefinition def = entry.getValue();
+            final File file = sourceFile(destDir, entry.getKey());
+            final Callable<Boolean> emission = new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws IOException {
+                    return emit(def, file, myTitle, myVersion);
+                }
+            };
+            final FutureTask<Boolean> task = new FutureTask<Boolean>(
+                    measurement == null ? emission : measurement.measured(emission));
+            tasks.add(task);
+            executor.execute(task);
+        }
+        final List<String> producedFiles = new ArrayList<String>();
+        for (String qualifiedName : types.keySet()) {
+            producedFiles.add(qualifiedName.replace('.', '/') + ".java");
+        }
+        return new Emission(model, destDir, tasks, producedFiles);
+    }
+
+    /**
+     * Renders a type and writes it unless the file already has the same content.
+     * @return true if the file was written
+     */
+    private boolean emit(final AbstractTypeDefinition def, final File file,
+                         final String myTitle, final String myVersion) throws IOException {
+        final CompilerEvent event = CompilerEvent.fileWritten(def.getName(), file.getPath());
+        final RenderBuffer buffer = new RenderBuffer();
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(buffer, "UTF-8")));
+        try {
+            render(def, out, SourceRefListener.NONE, myTitle, myVersion);
+        } finally {
+            out.close();
+        }
+        if (out.checkError()) {
+            throw new IOException("Failed to render " + def.getName());
+        }
+        final ByteBuffer content = buffer.content();
+        if (hasContent(file, content)) {
+            return false;
+        }
+        final FileChannel channel = new FileOutputStream(file).getChannel();
+        try {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        } finally {
+            channel.close();
+        }
+        event.bytes(buffer.size()).commit();
+        return true;
+    }
+
+    private void render(final AbstractTypeDefinition def, final Appendable out, final SourceRefListener listener,
+                        final String myTitle, final String myVersion) throws IOException {
+        listener.startElement(def.getSourceRef());
+        final String lineBreak = Utils.LINE_BREAK;
+        out.append("/* THIS IS GENERATED CODE. ALL CHANGES WILL BE LOST.").append(lineBreak);
+        out.append(" * Generated by ").append(myTitle).append(" v.").append(myVersion).append(lineBreak);
+        out.append(" *  See ").append(def.getSourceRef()).append(lineBreak);
+        out.append(" */").append(lineBreak);
+        out.append(lineBreak);
+        out.append("package ").append(packageName).append(";").append(lineBreak);
+        def.render(out, listener);
+    }
+
+    /**
+     * Generates java sources in memory. Content is the same as of files written by {@link #generate(Model, File)}.
+     * @param model collection of class and interface definitions
+     * @return qualified name to source text, in generation order
+     */
+    public final Map<String, RenderedSource> render(final Model model) {
+        final Package myPackage = getClass().getPackage();
+        final String myTitle = myPackage.getImplementationTitle();
+        final String myVersion = myPackage.getImplementationVersion();
+        final Map<String, RenderedSource> sources = new LinkedHashMap<String, RenderedSource>();
+        for (Map.Entry<String, AbstractTypeDefinition> entry : generatedTypes(model).entrySet()) {
+            final RenderedSource.Recorder recorder = new RenderedSource.Recorder();
             try {
-                out.println("/* THIS IS GENERATED CODE. ALL CHANGES WILL BE LOST.");
-                out.println(" * Generated by " + myTitle + " v." + myVersion);
-                out.println(" *  See " + def.getSourceRef());
-                out.println(" */");
-                out.println();
-                out.write("package ");
-                out.write(packageName);
-                out.write(";");
-                out.println();
-                out.write(def.toString());
-            } finally {
-                out.close();
+                render(entry.getValue(), recorder, recorder, myTitle, myVersion);
+            } catch (IOException e) {
+                // Recorder does not throw
+                throw new IllegalStateException(e);
             }
+            sources.put(entry.getKey(), recorder.toRenderedSource());
         }
+        return sources;
+    }
+
+    private static boolean hasContent(final File file, final ByteBuffer content) throws IOException {
+        // compare lengths first: most changed files differ in length
+        if (!file.isFile() || file.length() != content.remaining()) {
+            return false;
+        }
+        final ByteBuffer existing = ByteBuffer.allocate(content.remaining());
+        final FileChannel channel = new FileInputStream(file).getChannel();
+        try {
+            while (existing.hasRemaining() && channel.read(existing) >= 0) {
+                // keep reading
+            }
+        } finally {
+            channel.close();
+        }
+        existing.flip();
+        return existing.equals(content);
+    }
+
+    /**
+     * Type definitions, which this generator converts to Java code.
+     * @param model the model containing definitions
+     * @return qualified name to type definition, in generation order
+     */
+    public final Map<String, AbstractTypeDefinition> generatedTypes(final Model model) {
+        final Map<String, AbstractTypeDefinition> types = new LinkedHashMap<String, AbstractTypeDefinition>();
+        for (AbstractTypeDefinition def : processedTypes(model)) {
+            types.put(packageName + "." + def.getName(), def);
+        }
+        return types;
+    }
+
+    /**
+     * Location of generated source file.
+     * @param destDir generated sources directory (top level).
+     * @param qualifiedName qualified name of generated type
+     * @return the file
+     */
+    public static File sourceFile(final File destDir, final String qualifiedName) {
+        return new File(destDir, qualifiedName.replace('.', File.separatorChar) + ".java");
     }
 
     /**
@@ -85,4 +268,95 @@ public abstract class WriterGenerator implements Generator {
      * @return required definitions.
      */
     protected abstract Collection<? extends AbstractTypeDefinition> processedTypes(Model model);
+
+    private static final int BUFFER_SIZE = 16384;
+
+    /**
+     * Executor, which runs tasks in the calling thread.
+     */
+    public static final Executor CALLER_RUNS = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * Rendered file, which can be written without copying.
+     */
+    private static class RenderBuffer extends ByteArrayOutputStream {
+        private RenderBuffer() {
+            super(BUFFER_SIZE);
+        }
+
+        private ByteBuffer content() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    /**
+     * Generation started by {@link #submit(Model, File, F, Executor)}.
+     */
+    public final class Emission {
+        private final Model model;
+        private final File destDir;
+        private final List<FutureTask<Boolean>> tasks;
+        private final List<String> producedFiles;
+
+        private Emission(final Model model, final File destDir,
+                         final List<FutureTask<Boolean>> tasks, final List<String> producedFiles) {
+            this.model = model;
+            this.destDir = destDir;
+            this.tasks = tasks;
+            this.producedFiles = producedFiles;
+        }
+
+        /**
+         * Waits for all files to be written, then writes {@link OutputManifest} and adds statistics to
+         * the model report. If any task fails, the remaining tasks are cancelled.
+         * @throws IOException write failure
+         */
+        public void await() throws IOException {
+            int written = 0;
+            int unchanged = 0;
+            try {
+                for (FutureTask<Boolean> task : tasks) {
+                    if (getResult(task)) {
+                        written++;
+                    } else {
+                        unchanged++;
+                    }
+                }
+            } finally {
+                for (FutureTask<Boolean> task : tasks) {
+                    task.cancel(true);
+                }
+            }
+            OutputManifest.store(destDir, producedFiles);
+            model.getReport().addStatistic(WriterGenerator.this.getClass().getSimpleName() + ".filesWritten",
+                    written);
+            model.getReport().addStatistic(WriterGenerator.this.getClass().getSimpleName() + ".filesUnchanged",
+                    unchanged);
+        }
+
+        private boolean getResult(final FutureTask<Boolean> task) throws IOException {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing " + destDir);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                } else {
+                    throw new IllegalStateException(cause);
+                }
+            }
+        }
+    }
 }
@@ -16,13 +16,12 @@
 
 package org.symqle.model;
 
-import org.symqle.parser.ParseException;
-import org.symqle.parser.SymqleParser;
 import org.symqle.parser.SyntaxTree;
 import org.symqle.processor.GrammarException;
 import org.symqle.util.Utils;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -30,7 +29,7 @@ import java.util.*;
  *
  * @author Alexander Izyurov
  */
-public abstract class AbstractTypeDefinition {
+public abstract class AbstractTypeDefinition implements Renderable {
     private final Set<String> importLines;
     private final String name;
     private final String accessModifier;
@@ -40,8 +39,17 @@ public abstract class AbstractTypeDefinition {
     private final List<String> otherDeclarations = new ArrayList<String>();
     private final List<String> annotations;
     private final String sourceRef;
-
-    private static int anonymousClassCounter = 0;
+    // other types, which the content of this type is derived from
+    private final Set<AbstractTypeDefinition> origins = new LinkedHashSet<AbstractTypeDefinition>();
+
+    // incremented on every change, which may affect methods or ancestors of this type or derived types
+    private int modificationCount = 0;
+    // cached results of getAllMethodsMap and getAllAncestors
+    private Derived<Map<String, MethodDefinition>> allMethods;
+    private Derived<Set<Type>> allAncestors;
+    // collect modification counts of ancestors while the cached values are being built
+    private Map<AbstractTypeDefinition, Integer> pendingMethodStamps;
+    private Map<AbstractTypeDefinition, Integer> pendingAncestorStamps;
 
     // presentation part
     private String comment;
@@ -53,6 +61,17 @@ public abstract class AbstractTypeDefinition {
      * @throws GrammarException wrong tree type or semantic error (duplicated methods etc.)
      */
     protected AbstractTypeDefinition(final SyntaxTree node) throws GrammarException {
+        this(node, null);
+    }
+
+    /**
+     * Constructs from AST. The tree shoud be of type
+     * SymqleInterfaceDeclaration, NormalClassDeclaration or ProductionImplementation.
+     * @param node the syntax tree
+     * @param anonymousName name to use if the tree does not define one
+     * @throws GrammarException wrong tree type, missing name or semantic error (duplicated methods etc.)
+     */
+    protected AbstractTypeDefinition(final SyntaxTree node, final String anonymousName) throws GrammarException {
         AssertNodeType.assertOneOf(node,
                 "SymqleInterfaceDeclaration", "NormalClassDeclaration", "ProductionImplementation");
 
@@ -73,8 +92,11 @@ public abstract class AbstractTypeDefinition {
                 return "$$" + syntaxTree.getValue();
             }
         }));
+        if (names.isEmpty() && anonymousName == null) {
+            throw new GrammarException("Type name is missing", node);
+        }
         this.name = names.isEmpty()
-                ? "anonymous$" + anonymousClassCounter++
+                ? anonymousName
                 : names.get(0);
 
         final List<TypeParameter> typeParams = node.find("TypeParameters.TypeParameter", TypeParameter.CONSTRUCT);
@@ -82,25 +104,21 @@ public abstract class AbstractTypeDefinition {
         typeParams.addAll(node.find("^.TypeParameters.TypeParameter", TypeParameter.CONSTRUCT));
         this.typeParameters = new TypeParameters(typeParams);
         // exactly one body guaranteed by syntax - either InterfaceBody or ClassBody
-        // except for ImplementationHiht, which can have no body
+        // except for ProductionImplementation, which can have no body (same as empty body)
         final List<SyntaxTree> bodies = node.find("InterfaceBody");
         bodies.addAll(node.find("ClassBody"));
-        if (node.getType().equals("ProductionImplementation") && bodies.isEmpty()) {
-            try {
-                bodies.add(new SyntaxTree(SymqleParser.createParser("{}").ClassBody(), node.getFileName()));
-            } catch (ParseException e) {
-                throw new RuntimeException(e);
-            }
+        final List<SyntaxTree> members = new ArrayList<SyntaxTree>();
+        for (SyntaxTree bodyNode: bodies) {
+            members.addAll(bodyNode.find("InterfaceMemberDeclaration"));
+            members.addAll(bodyNode.find("ClassBodyDeclaration"));
         }
-        final SyntaxTree bodyNode = bodies.get(0);
-        final List<SyntaxTree> members = bodyNode.find("InterfaceMemberDeclaration");
-        members.addAll(bodyNode.find("ClassBodyDeclaration"));
         for (SyntaxTree member : members) {
             final SyntaxTree child = member.getChildren().get(0);
             String type = child.getType();
             if (type.equals("AbstractMethodDeclaration")
                     || type.equals("MethodDeclaration")) {
                 MethodDefinition methodDefinition = new MethodDefinition(child, this);
+                methodDefinition.setDeclarationRef(new File(child.getFileName()).getName() + ":" + child.getLine());
                 try {
                     addMethod(methodDefinition);
                 } catch (ModelException e) {
@@ -115,6 +133,118 @@ public abstract class AbstractTypeDefinition {
         sourceRef = new File(node.getFileName()).getName() + ":" + node.getLine();
     }
 
+    /**
+     * Constructs from parts collected by a builder, without parsing.
+     * @param builder the builder
+     */
+    protected AbstractTypeDefinition(final Builder<?, ?> builder) {
+        this.importLines = new TreeSet<String>(builder.importLines);
+        this.name = builder.name;
+        this.accessModifier = builder.accessModifier;
+        this.otherModifiers = new HashSet<String>(builder.otherModifiers);
+        this.annotations = new ArrayList<String>();
+        this.typeParameters = builder.typeParameters;
+        this.comment = builder.comment;
+        this.sourceRef = builder.sourceRef;
+    }
+
+    /**
+     * Common part of builders for classes and interfaces.
+     * Methods are not set by builder; they are added to the constructed type definition
+     * by {@link #addMethod(MethodDefinition)}, because each method needs its owner.
+     * @param <T> constructed type
+     * @param <B> concrete builder type
+     */
+    public abstract static class Builder<T extends AbstractTypeDefinition, B extends Builder<T, B>> {
+        private final String name;
+        private String comment = "";
+        private String accessModifier = "";
+        private final Set<String> otherModifiers = new HashSet<String>();
+        private TypeParameters typeParameters = new TypeParameters(Collections.<TypeParameter>emptyList());
+        private final Set<String> importLines = new TreeSet<String>();
+        private String sourceRef;
+
+        /**
+         * Constructs a builder for type with given name.
+         * @param name type name
+         */
+        protected Builder(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * {@code this} as concrete builder type.
+         * @return {@code this}
+         */
+        protected abstract B self();
+
+        /**
+         * Constructs the type definition.
+         * @return new type definition
+         */
+        public abstract T build();
+
+        /**
+         * Sets comment preceding the type declaration.
+         * @param newComment comment text including all whitespace up to the declaration
+         * @return {@code this}
+         */
+        public final B comment(final String newComment) {
+            this.comment = newComment;
+            return self();
+        }
+
+        /**
+         * Sets access modifier.
+         * @param newAccessModifier "public", "protected", "private" or empty string for package scope
+         * @return {@code this}
+         */
+        public final B accessModifier(final String newAccessModifier) {
+            this.accessModifier = newAccessModifier;
+            return self();
+        }
+
+        /**
+         * Adds modifiers other than access modifier: abstract, final etc.
+         * @param modifiers modifiers to add
+         * @return {@code this}
+         */
+        public final B modifiers(final String... modifiers) {
+            this.otherModifiers.addAll(Arrays.asList(modifiers));
+            return self();
+        }
+
+        /**
+         * Sets type parameters.
+         * @param newTypeParameters type parameters
+         * @return {@code this}
+         */
+        public final B typeParameters(final TypeParameters newTypeParameters) {
+            this.typeParameters = newTypeParameters;
+            return self();
+        }
+
+        /**
+         * Adds import lines. See {@link AbstractTypeDefinition#addImportLines(Collection)}.
+         * @param lines import lines to add
+         * @return {@code this}
+         */
+        public final B importLines(final Collection<String> lines) {
+            this.importLines.addAll(lines);
+            return self();
+        }
+
+        /**
+         * Sets location of sdl source.
+         * @param newSourceRef reference in file:line format
+         * @return {@code this}
+         */
+        public final B sourceRef(final String newSourceRef) {
+            this.sourceRef = newSourceRef;
+            return self();
+        }
+    }
+
     /**
      * Adds field declaration to {@code this}.
      * No check for duplicate fields; generated sources will be non-compilable if there are any.
@@ -158,7 +288,7 @@ public abstract class AbstractTypeDefinition {
      * @return the type.
      */
     public final Type getType() {
-        return new Type(name, typeParameters.asTypeArguments(), 0);
+        return Type.of(name, typeParameters.asTypeArguments(), 0);
     }
 
 
@@ -168,11 +298,20 @@ public abstract class AbstractTypeDefinition {
      * @throws ModelException duplicate method
      */
     public final void addMethod(final MethodDefinition methodDefinition) throws ModelException {
+        markModified();
         if (null != methods.put(methodDefinition.signature(), methodDefinition)) {
             throw new ModelException("Duplicate method: " + methodDefinition.signature() + " in " + getName());
         }
     }
 
+    /**
+     * Invalidates cached data of {@code this} and all derived types.
+     * Should be called on every change of methods or inheritance relations.
+     */
+    final void markModified() {
+        modificationCount++;
+    }
+
     /**
      * Adds import lines to {@code this}.
      * Each line must be full inport statement, like "import org.symqle.common.SqlBuilder;".
@@ -239,14 +378,45 @@ public abstract class AbstractTypeDefinition {
         return getAllMethodsMap(model).get(signature);
     }
 
+    /**
+     * All declared and inherited methods by signature.
+     * The map is cached and rebuilt only if {@code this} or any of its ancestors has changed since.
+     * Inherited methods in the map are shared copies, which cannot be modified;
+     * {@link MethodDefinition#override(AbstractTypeDefinition, Model)} of the original method creates
+     * a modifiable one.
+     * @param model the model to consult for inherited methods.
+     * @return unmodifiable map of all methods by signature
+     * @throws ModelException wrong model (e.g. name clash of declared and inherited methods).
+     */
+    protected final Map<String, MethodDefinition> getAllMethodsMap(final Model model) throws ModelException {
+        if (allMethods == null || !allMethods.isValid(model)) {
+            final Map<AbstractTypeDefinition, Integer> stamps = newStamps();
+            pendingMethodStamps = stamps;
+            try {
+                allMethods = new Derived<Map<String, MethodDefinition>>(
+                        Collections.unmodifiableMap(buildAllMethodsMap(model)), model, stamps);
+            } finally {
+                pendingMethodStamps = null;
+            }
+        }
+        return allMethods.value;
+    }
+
+    private Map<AbstractTypeDefinition, Integer> newStamps() {
+        final Map<AbstractTypeDefinition, Integer> stamps = new IdentityHashMap<AbstractTypeDefinition, Integer>();
+        stamps.put(this, modificationCount);
+        return stamps;
+    }
+
     /**
      * Subclasses should provide implementation, which returns (signature:method) map.
      * All declared and inherited methods are expected in the map.
+     * Inherited methods should be added by {@link #addInheritedMethodsToMap(Model, Map, Type)}.
      * @param model the model to consult for inherited methods.
      * @return map of all methods by signature
      * @throws ModelException wrong model (e.g. name clash of declared and inherited methods).
      */
-    protected abstract Map<String, MethodDefinition> getAllMethodsMap(Model model) throws ModelException;
+    protected abstract Map<String, MethodDefinition> buildAllMethodsMap(Model model) throws ModelException;
 
     /**
      * ExtendsImplements clause for {@code this}.
@@ -282,20 +452,56 @@ public abstract class AbstractTypeDefinition {
         return sourceRef;
     }
 
+    /**
+     * Registers a type, which the content of {@code this} is derived from, other than
+     * its ancestors and types of its method parameters. For example, a test interface is
+     * derived from the tested class.
+     * Origins are used to find sources, which a generated type depends on.
+     * @param origin the type to register
+     */
+    public final void addOrigin(final AbstractTypeDefinition origin) {
+        if (origin != this) {
+            origins.add(origin);
+        }
+    }
+
+    /**
+     * Types registered by {@link #addOrigin(AbstractTypeDefinition)}.
+     * @return immutable set of origins in order of registration
+     */
+    public final Set<AbstractTypeDefinition> getOrigins() {
+        return Collections.unmodifiableSet(origins);
+    }
+
     @Override
-    public final String toString() {
-        final StringBuilder builder = new StringBuilder();
-        builder.append(Utils.format(importLines, "", Utils.LINE_BREAK, Utils.LINE_BREAK + Utils.LINE_BREAK))
+    public final void render(final Appendable out) throws IOException {
+        render(out, SourceRefListener.NONE);
+    }
+
+    /**
+     * Writes Java source of this type, notifying listener where each method starts.
+     * Methods without source reference and other parts of the type are reported with source reference of the type.
+     * @param out where to write
+     * @param listener receives source references
+     * @throws IOException write failure
+     */
+    public final void render(final Appendable out, final SourceRefListener listener) throws IOException {
+        listener.startElement(sourceRef);
+        out.append(Utils.format(importLines, "", Utils.LINE_BREAK, Utils.LINE_BREAK + Utils.LINE_BREAK))
                 .append(comment)
                 .append(declarationString())
                 .append(" {")
-                .append(Utils.LINE_BREAK)
-                .append(bodyStringWithoutBraces())
-                .append(Utils.LINE_BREAK)
+                .append(Utils.LINE_BREAK);
+        renderBody(out, listener);
+        listener.startElement(sourceRef);
+        out.append(Utils.LINE_BREAK)
                 .append("}")
                 .append(Utils.LINE_BREAK);
-        return builder.toString();
+    }
 
+    @Override
+    public final String toString() {
+        return Utils.asString(this);
     }
 
     private String declarationString() {
@@ -333,16 +539,28 @@ public abstract class AbstractTypeDefinition {
      */
     protected final String bodyStringWithoutBraces() {
         final StringBuilder builder = new StringBuilder();
+        try {
+            renderBody(builder, SourceRefListener.NONE);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new IllegalStateException(e);
+        }
+        return builder.toString();
+    }
+
+    private void renderBody(final Appendable out, final SourceRefListener listener) throws IOException {
         // we are not expecting inner classes (which should go after methods by convention
         // so we are putting everything but methods before methods
         for (String otherDeclaration: otherDeclarations) {
-            builder.append(otherDeclaration).append(Utils.LINE_BREAK);
-       }
+            out.append(otherDeclaration).append(Utils.LINE_BREAK);
+        }
         for (MethodDefinition method: methods.values()) {
-            builder.append(method);
-            builder.append(Utils.LINE_BREAK);
+            listener.startElement(method.getSourceRef() != null
+                    ? method.getSourceRef()
+                    : method.getDeclarationRef() != null ? method.getDeclarationRef() : sourceRef);
+            method.render(out);
+            out.append(Utils.LINE_BREAK);
         }
-        return builder.toString();
     }
 
     /**
@@ -354,7 +572,7 @@ public abstract class AbstractTypeDefinition {
     }
 
     /**
-     * Helper method for implementation of {@link #getAllMethodsMap(Model)} in derived classes.
+     * Helper method for implementation of {@link #buildAllMethodsMap(Model)} in derived classes.
      * Finds inherited methods from a given superclass/superinterface (including transitive inheritance)
      * and adds them to a map.
      * @param model the model
@@ -369,13 +587,16 @@ public abstract class AbstractTypeDefinition {
         if (parent == null) {
             throw new ModelException("parentType not found : " + parentType.getSimpleName());
         }
-        for (MethodDefinition method: parent.getAllMethods(model)) {
+        final Collection<MethodDefinition> parentMethods = parent.getAllMethods(model);
+        pendingMethodStamps.putAll(parent.allMethods.stamps);
+        for (MethodDefinition method: parentMethods) {
             if (!"private".equals(method.getAccessModifier())) {
                 final MethodDefinition candidate = method.override(this, model);
                 String signature = candidate.signature();
                 MethodDefinition myMethod = methodMap.get(signature);
                 if (myMethod == null) {
                     // add fake method if possible: we do not care about body
+                    candidate.shareAsInherited(method);
                     methodMap.put(signature, candidate);
                 } else {
                     // is overridden explicitly; make sure it is Ok to override
@@ -390,11 +611,33 @@ public abstract class AbstractTypeDefinition {
 
     /**
      * Find all ancestors of {@code this}.
+     * The result is cached and recalculated only if {@code this} or any of its ancestors has changed since.
+     * @param model the model to scan
+     * @return unmodifiable set of all ancestors
+     * @throws ModelException wrong model (e.g. same interface inherited twice with different type parameters)
+     */
+    public final Set<Type> getAllAncestors(final Model model) throws ModelException {
+        if (allAncestors == null || !allAncestors.isValid(model)) {
+            final Map<AbstractTypeDefinition, Integer> stamps = newStamps();
+            pendingAncestorStamps = stamps;
+            try {
+                allAncestors = new Derived<Set<Type>>(
+                        Collections.unmodifiableSet(buildAllAncestors(model)), model, stamps);
+            } finally {
+                pendingAncestorStamps = null;
+            }
+        }
+        return allAncestors.value;
+    }
+
+    /**
+     * Subclasses should provide implementation, which finds all ancestors of {@code this}.
+     * Transitively inherited ancestors should be found by {@link #getInheritedAncestors(Type, Model)}.
      * @param model the model to scan
      * @return all ancestors
      * @throws ModelException wrong model (e.g. same interface inherited twice with different type parameters)
      */
-    public abstract Set<Type> getAllAncestors(Model model) throws ModelException;
+    protected abstract Set<Type> buildAllAncestors(Model model) throws ModelException;
 
     /**
      * Replaces class comment with a new one.
@@ -414,6 +657,9 @@ public abstract class AbstractTypeDefinition {
     protected final Set<Type> getInheritedAncestors(final Type parentType, final Model model) throws ModelException {
         final AbstractTypeDefinition parent = model.getAbstractType(parentType.getSimpleName());
         final Set<Type> parentAncestors = parent.getAllAncestors(model);
+        if (pendingAncestorStamps != null) {
+            pendingAncestorStamps.putAll(parent.allAncestors.stamps);
+        }
         final Set<Type> myAncestors = new HashSet<Type>();
         for (Type parentAncestor: parentAncestors) {
             final Map<String, TypeArgument> replacementMap =
@@ -423,6 +669,33 @@ public abstract class AbstractTypeDefinition {
         return myAncestors;
     }
 
-}
+    /**
+     * Value calculated from a type and its ancestors.
+     * Remembers modification counts of all types it was calculated from.
+     * @param <V> value type
+     */
+    private static final class Derived<V> {
+        private final V value;
+        private final Model model;
+        private final Map<AbstractTypeDefinition, Integer> stamps;
+
+        private Derived(final V value, final Model model, final Map<AbstractTypeDefinition, Integer> stamps) {
+            this.value = value;
+            this.model = model;
+            this.stamps = stamps;
+        }
 
+        private boolean isValid(final Model currentModel) {
+            if (model != currentModel) {
+                return false;
+            }
+            for (Map.Entry<AbstractTypeDefinition, Integer> entry : stamps.entrySet()) {
+                if (entry.getKey().modificationCount != entry.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 
+}
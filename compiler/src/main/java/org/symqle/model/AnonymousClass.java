@@ -46,10 +46,12 @@ public class AnonymousClass extends AbstractTypeDefinition {
      * (cannot be determined from ProductionImplementation tree)
      * @param node should be ProductionImplementation or MethodDeclaration
      * @param extendedType the parent type
+     * @param model the model, which provides unique names
      * @throws GrammarException wrong tree
      */
-    public AnonymousClass(final SyntaxTree node, final Type extendedType) throws GrammarException {
-        super(node);
+    public AnonymousClass(final SyntaxTree node, final Type extendedType, final Model model)
+            throws GrammarException {
+        super(node, model.nextAnonymousClassName());
 
         extended = extendedType;
     }
@@ -62,7 +64,7 @@ public class AnonymousClass extends AbstractTypeDefinition {
     }
 
     @Override
-    public final Set<Type> getAllAncestors(final Model model) throws ModelException {
+    protected final Set<Type> buildAllAncestors(final Model model) throws ModelException {
         final Set<Type> ancestors = new HashSet<Type>();
         final Type parentType = extended;
         ancestors.add(parentType);
@@ -108,7 +110,7 @@ public class AnonymousClass extends AbstractTypeDefinition {
     }
 
     @Override
-    protected final Map<String, MethodDefinition> getAllMethodsMap(final Model model) throws ModelException {
+    protected final Map<String, MethodDefinition> buildAllMethodsMap(final Model model) throws ModelException {
         final Map<String, MethodDefinition> methodMap = new HashMap<String, MethodDefinition>();
         for (MethodDefinition method: getDeclaredMethods()) {
             methodMap.put(method.signature(), method);
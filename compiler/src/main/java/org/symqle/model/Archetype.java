@@ -97,7 +97,7 @@ public abstract class Archetype {
      */
     public static Archetype create(final SyntaxTree node) throws GrammarException {
         AssertNodeType.assertOneOf(node, "Archetype");
-        final TypeArguments typeArguments = new TypeArguments(node.find("TypeArguments.TypeArgument", TypeArgument.CONSTRUCT));
+        final TypeArguments typeArguments = TypeArguments.of(node.find("TypeArguments.TypeArgument", TypeArgument.CONSTRUCT));
         String name = node.find("Identifier", SyntaxTree.VALUE).get(0);
         try {
             if ("SqlBuilder".equals(name)) {
@@ -133,9 +133,9 @@ public abstract class Archetype {
 
         @Override
         public MethodDefinition createArchetypeMethod(final InterfaceDefinition interfaceDefinition) {
-            return MethodDefinition.parseAbstract(
-                    String.format(SQL_METHOD_FORMAT, interfaceDefinition.getName(),
-                            interfaceDefinition.getName(), ""), interfaceDefinition);
+            return archetypeMethod(interfaceDefinition,
+                    String.format(SQL_METHOD_COMMENT_FORMAT, interfaceDefinition.getName()),
+                    Type.of("SqlBuilder"));
         }
 
         @Override
@@ -157,10 +157,9 @@ public abstract class Archetype {
 
         @Override
         public MethodDefinition createArchetypeMethod(final InterfaceDefinition interfaceDefinition) {
-            return MethodDefinition.parseAbstract(
-                    String.format(QUERY_METHOD_FORMAT, interfaceDefinition.getName(),
-                            getTypeArguments(),
-                            interfaceDefinition.getName(), ""), interfaceDefinition);
+            return archetypeMethod(interfaceDefinition,
+                    String.format(QUERY_METHOD_COMMENT_FORMAT, interfaceDefinition.getName()),
+                    Type.of("QueryBuilder", getTypeArguments(), 0));
         }
 
         @Override
@@ -172,28 +171,36 @@ public abstract class Archetype {
     private static final String ARCHETYPE_METHOD_PREFIX = "z$sqlOf";
 
 
-    private static final String QUERY_METHOD_FORMAT = Utils.indent(4,
+    private static MethodDefinition archetypeMethod(final InterfaceDefinition interfaceDefinition,
+                                                    final String comment, final Type resultType) {
+        return MethodDefinition.builder(interfaceDefinition,
+                    ARCHETYPE_METHOD_PREFIX + interfaceDefinition.getName())
+                .comment(comment + "    ")
+                .resultType(resultType)
+                .parameter(new FormalParameter(Type.of("SqlContext"), "context"))
+                .build();
+    }
+
+    private static final String QUERY_METHOD_COMMENT_FORMAT = Utils.indent(4,
             "/**",
             "* Creates a QueryBuilder, which constructs SQL conforming to {@link %s}.",
             "* @param context the Sql construction context",
             "* @return constructed QueryBuilder",
-            "*/",
-            "QueryBuilder%s " + ARCHETYPE_METHOD_PREFIX + "%s(%sSqlContext context);"
+            "*/"
             );
 
-    private static final String SQL_METHOD_FORMAT = Utils.indent(4,
+    private static final String SQL_METHOD_COMMENT_FORMAT = Utils.indent(4,
             "/**",
             "* Creates an SqlBuilder, which constructs SQL conforming to {@link %s}.",
             "* @param context the Sql construction context",
             "* @return constructed SqlBuilder",
-            "*/",
-            "SqlBuilder " + ARCHETYPE_METHOD_PREFIX + "%s(%sSqlContext context);"
+            "*/"
     );
 
     /**
      * No archetype.
      */
-    public static final Archetype NONE = new Archetype(new TypeArguments(Collections.<TypeArgument>emptyList())) {
+    public static final Archetype NONE = new Archetype(TypeArguments.EMPTY) {
 
         @Override
         public MethodDefinition createArchetypeMethod(final InterfaceDefinition interfaceDefinition) {
@@ -16,9 +16,6 @@
 
 package org.symqle.model;
 
-import org.symqle.parser.ParseException;
-import org.symqle.parser.SimpleNode;
-import org.symqle.parser.SymqleParser;
 import org.symqle.parser.SyntaxTree;
 import org.symqle.processor.GrammarException;
 import org.symqle.util.Log;
@@ -50,29 +47,69 @@ public class ClassDefinition extends AbstractTypeDefinition {
 
 
     /**
-     * Parses source. The source should be class declaration as per JLS, without package and import statements.
-     * @param source the source
-     * @return constructed class definition
+     * Starts construction of a class without parsing its source.
+     * @param name class name
+     * @return new builder
      */
-    public static ClassDefinition parse(final String source) {
-        try {
-            final SimpleNode simpleNode = SymqleParser.createParser(source).NormalClassDeclaration();
-            SyntaxTree syntaxTree = new SyntaxTree(simpleNode, source);
-            return new ClassDefinition(syntaxTree);
-        } catch (ParseException e) {
-            throw new RuntimeException("Internal error", e);
-        } catch (GrammarException e) {
-            throw new RuntimeException("Internal error", e);
+    public static Builder builder(final String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * Constructs ClassDefinition directly from its parts.
+     */
+    public static final class Builder extends AbstractTypeDefinition.Builder<ClassDefinition, Builder> {
+        private Type extendedClass;
+        private final Set<Type> implementedInterfaces = new HashSet<Type>();
+
+        private Builder(final String name) {
+            super(name);
+        }
+
+        /**
+         * Sets superclass.
+         * @param superclass the superclass; null if the class extends Object
+         * @return {@code this}
+         */
+        public Builder extendedClass(final Type superclass) {
+            this.extendedClass = superclass;
+            return this;
+        }
+
+        /**
+         * Adds implemented interface.
+         * @param interfaceType the interface
+         * @return {@code this}
+         */
+        public Builder implementedInterface(final Type interfaceType) {
+            this.implementedInterfaces.add(interfaceType);
+            return this;
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        @Override
+        public ClassDefinition build() {
+            return new ClassDefinition(this);
         }
     }
 
+    private ClassDefinition(final Builder builder) {
+        super(builder);
+        this.extendedClass = builder.extendedClass;
+        this.implementedInterfaces = new HashSet<Type>(builder.implementedInterfaces);
+    }
+
     @Override
     protected final String getTypeKeyword() {
         return "class";
     }
 
     @Override
-    public final Set<Type> getAllAncestors(final Model model) throws ModelException {
+    protected final Set<Type> buildAllAncestors(final Model model) throws ModelException {
         final Set<Type> ancestors = new HashSet<Type>();
         if (extendedClass != null) {
             ancestors.add(extendedClass);
@@ -122,7 +159,7 @@ public class ClassDefinition extends AbstractTypeDefinition {
         if (extendedTypes.isEmpty()) {
             this.extendedClass = null;
         } else {
-            this.extendedClass = new Type(extendedTypes.get(0));
+            this.extendedClass = Type.of(extendedTypes.get(0));
         }
         this.implementedInterfaces = new HashSet<Type>();
         for (Type type: node.find("Interfaces.ClassOrInterfaceType", Type.CONSTRUCT)) {
@@ -137,6 +174,7 @@ public class ClassDefinition extends AbstractTypeDefinition {
      * @throws ModelException
      */
     public final void addImplementedInterface(final Type interfaceType) {
+        markModified();
         implementedInterfaces.add(interfaceType);
     }
 
@@ -151,7 +189,7 @@ public class ClassDefinition extends AbstractTypeDefinition {
     }
 
     @Override
-    public final Map<String, MethodDefinition> getAllMethodsMap(final Model model) throws ModelException {
+    protected final Map<String, MethodDefinition> buildAllMethodsMap(final Model model) throws ModelException {
         final Map<String, MethodDefinition> methodMap = new HashMap<String, MethodDefinition>();
         for (MethodDefinition method: getDeclaredMethods()) {
             methodMap.put(method.signature(), method);
@@ -271,6 +309,8 @@ public class ClassDefinition extends AbstractTypeDefinition {
         for (Type t : implementedInterfaces) {
             indirectInterfaces.addAll(getInheritedAncestors(t, model));
         }
-        implementedInterfaces.removeAll(indirectInterfaces);
+        if (implementedInterfaces.removeAll(indirectInterfaces)) {
+            markModified();
+        }
     }
 }
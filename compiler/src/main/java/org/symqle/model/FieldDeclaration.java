@@ -16,13 +16,13 @@
 
 package org.symqle.model;
 
-import org.symqle.parser.ParseException;
-import org.symqle.parser.SimpleNode;
-import org.symqle.parser.SymqleParser;
 import org.symqle.parser.SyntaxTree;
 import org.symqle.processor.GrammarException;
 import org.symqle.util.Utils;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -37,21 +37,21 @@ public class FieldDeclaration {
     private final String comment;
 
     /**
-     * Construct from String.
-     * The string should contain valid field declaration.
-     * @param source the string
-     * @return new instance
+     * Construct from parts.
+     * @param comment comment including leading whitespace
+     * @param accessModifier access modifier, may be empty
+     * @param otherModifiers non-access modifiers
+     * @param type field type
+     * @param variables declared variables
      */
-    public static FieldDeclaration parse(final String source) {
-        try {
-            final SimpleNode simpleNode = SymqleParser.createParser(source).FieldDeclaration();
-            SyntaxTree syntaxTree = new SyntaxTree(simpleNode, source);
-            return new FieldDeclaration(syntaxTree);
-        } catch (ParseException e) {
-            throw new IllegalArgumentException(e);
-        } catch (GrammarException e) {
-            throw new IllegalArgumentException(e);
-        }
+    public FieldDeclaration(final String comment, final String accessModifier,
+                            final Collection<String> otherModifiers, final Type type,
+                            final List<VariableDeclarator> variables) {
+        this.comment = comment;
+        this.accessModifier = accessModifier;
+        this.otherModifiers = new LinkedHashSet<String>(otherModifiers);
+        this.type = type;
+        this.variables = new ArrayList<VariableDeclarator>(variables);
     }
 
     /**
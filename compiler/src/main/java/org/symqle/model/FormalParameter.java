@@ -20,6 +20,7 @@ import org.symqle.parser.SyntaxTree;
 import org.symqle.processor.GrammarException;
 import org.symqle.util.Utils;
 
+import java.io.IOException;
 import java.util.*;
 
 
@@ -28,7 +29,7 @@ import java.util.*;
  *
  * @author Alexander Izyurov
  */
-public class FormalParameter {
+public class FormalParameter implements Renderable {
 
     private final Type rawType;
 
@@ -119,10 +120,16 @@ public class FormalParameter {
         return name;
     }
 
+    @Override
+    public final void render(final Appendable out) throws IOException {
+        out.append(Utils.format(modifiers, "", " ", " "));
+        rawType.render(out);
+        out.append(ellipsis ? "..." : "").append(" ").append(name);
+    }
+
     @Override
     public final String toString() {
-        return Utils.format(modifiers, "", " ", " ") + rawType.toString()
-                + (ellipsis ? "..." : "") + " " + name;
+        return Utils.asString(this);
     }
 
     /**
@@ -91,17 +91,23 @@ public class ImplicitConversion {
     public static ClassDefinition getSqlBuilder(final Type basicInterface, final Model model) throws ModelException {
         final InterfaceDefinition anInterface = model.getInterface(basicInterface.getSimpleName());
         final MethodDefinition archetypeMethod = anInterface.getArchetypeMethod();
-        String myArchetypeMethodSource = "    public abstract " + archetypeMethod.getResultType()
-                + " " + archetypeMethod.getName() + "(final SqlContext context);";
         final String sqlBuilderName = basicInterface.getSimpleName() + "SqlBuilder";
         ClassDefinition builder = model.getClassDef(sqlBuilderName);
         if (builder == null) {
-            builder = ClassDefinition.parse("abstract class " + sqlBuilderName
-                    + " " + anInterface.getTypeParameters() + " {" + Utils.LINE_BREAK
-                    + myArchetypeMethodSource + Utils.LINE_BREAK
-                    + "}");
-            builder.addImportLines(Arrays.asList(
-                    "import org.symqle.common.*;"));
+            builder = ClassDefinition.builder(sqlBuilderName)
+                    .modifiers("abstract")
+                    .typeParameters(anInterface.getTypeParameters())
+                    .importLines(Arrays.asList("import org.symqle.common.*;"))
+                    .sourceRef(anInterface.getSourceRef())
+                    .build();
+            builder.addMethod(MethodDefinition.builder(builder, archetypeMethod.getName())
+                    .comment(Utils.LINE_BREAK + "    ")
+                    .accessModifier("public")
+                    .modifiers("abstract")
+                    .resultType(archetypeMethod.getResultType())
+                    .parameter(new FormalParameter(Type.of("SqlContext"), "context",
+                            Arrays.asList("final"), false))
+                    .build());
             model.addClass(builder);
         }
         return builder;
@@ -116,6 +122,6 @@ public class ImplicitConversion {
      */
     public static Type getImplementationType(final Type resultType, final Model model) throws ModelException {
         final ClassDefinition sqlBuilder = getSqlBuilder(resultType, model);
-        return new Type(sqlBuilder.getName(), resultType.getTypeArguments(), resultType.getArrayDimensions());
+        return Type.of(sqlBuilder.getName(), resultType.getTypeArguments(), resultType.getArrayDimensions());
     }
 }
@@ -20,6 +20,7 @@ import org.symqle.parser.SyntaxTree;
 import org.symqle.processor.GrammarException;
 import org.symqle.util.Utils;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -69,6 +70,53 @@ public class InterfaceDefinition extends AbstractTypeDefinition {
         }
     }
 
+    /**
+     * Starts construction of an interface without parsing its source.
+     * Constructed interface has no archetype.
+     * @param name interface name
+     * @return new builder
+     */
+    public static Builder builder(final String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * Constructs InterfaceDefinition directly from its parts.
+     */
+    public static final class Builder extends AbstractTypeDefinition.Builder<InterfaceDefinition, Builder> {
+        private final List<Type> extended = new ArrayList<Type>();
+
+        private Builder(final String name) {
+            super(name);
+        }
+
+        /**
+         * Adds extended interface.
+         * @param interfaceType the interface
+         * @return {@code this}
+         */
+        public Builder extendedInterface(final Type interfaceType) {
+            this.extended.add(interfaceType);
+            return this;
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        @Override
+        public InterfaceDefinition build() {
+            return new InterfaceDefinition(this);
+        }
+    }
+
+    private InterfaceDefinition(final Builder builder) {
+        super(builder);
+        this.extended = new ArrayList<Type>(builder.extended);
+        this.archetypeMethod = null;
+    }
+
     /**
      * Add method, which has default implementation as static method of Symqle.
      * Methods are currently implemented in derived classes; waiting for Java 8.
@@ -86,7 +134,7 @@ public class InterfaceDefinition extends AbstractTypeDefinition {
     }
 
     @Override
-    public final Set<Type> getAllAncestors(final Model model) throws ModelException {
+    protected final Set<Type> buildAllAncestors(final Model model) throws ModelException {
         final Set<Type> ancestors = new HashSet<Type>();
         for (Type type: extended) {
             ancestors.add(type);
@@ -105,7 +153,7 @@ public class InterfaceDefinition extends AbstractTypeDefinition {
     }
 
     @Override
-    protected final Map<String, MethodDefinition> getAllMethodsMap(final Model model) throws ModelException {
+    protected final Map<String, MethodDefinition> buildAllMethodsMap(final Model model) throws ModelException {
         // Map of methods by signature
         Map<String, MethodDefinition> allMethods = new HashMap<String, MethodDefinition>();
         for (MethodDefinition method: getDeclaredMethods()) {
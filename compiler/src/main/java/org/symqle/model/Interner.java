@@ -0,0 +1,95 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.model;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pool of canonical instances of immutable values.
+ * Values, which are not referenced from outside, are eventually removed from the pool.
+ * Thread safe and lock free on lookup: the pool is shared by parser threads and concurrent compilations.
+ * Sharing is harmless because pooled values are immutable.
+ * @param <T> value type; should be immutable with structural equals() and hashCode()
+ * @author Alexander Izyurov
+ */
+final class Interner<T> {
+    private final ConcurrentMap<WeakKey<T>, WeakKey<T>> pool = new ConcurrentHashMap<WeakKey<T>, WeakKey<T>>();
+    private final ReferenceQueue<T> collected = new ReferenceQueue<T>();
+
+    /**
+     * Canonical instance equal to candidate.
+     * @param candidate the value to look for
+     * @return instance from the pool; candidate itself if there was no equal value in the pool
+     */
+    T intern(final T candidate) {
+        expungeCollected();
+        final WeakKey<T> key = new WeakKey<T>(candidate, collected);
+        while (true) {
+            final WeakKey<T> existingKey = pool.putIfAbsent(key, key);
+            if (existingKey == null) {
+                return candidate;
+            }
+            final T existing = existingKey.get();
+            if (existing != null) {
+                return existing;
+            }
+            // collected, but not expunged yet
+            pool.remove(existingKey, existingKey);
+        }
+    }
+
+    private void expungeCollected() {
+        for (Reference<? extends T> reference = collected.poll(); reference != null; reference = collected.poll()) {
+            pool.remove(reference);
+        }
+    }
+
+    /**
+     * Weak reference, which is equal to other references to equal values.
+     * Hash code is remembered, so that a collected key can still be found and removed;
+     * a collected key is equal only to itself.
+     */
+    private static final class WeakKey<T> extends WeakReference<T> {
+        private final int hash;
+
+        private WeakKey(final T value, final ReferenceQueue<T> queue) {
+            super(value, queue);
+            this.hash = value.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof WeakKey) || hash != o.hashCode()) {
+                return false;
+            }
+            final Object value = get();
+            return value != null && value.equals(((WeakKey<?>) o).get());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -24,12 +24,13 @@ import org.symqle.processor.GrammarException;
 import org.symqle.util.Utils;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 /**
  * Java method definition.
  */
-public class MethodDefinition {
+public class MethodDefinition implements Renderable {
     private String comment;
     private final String accessModifier;
     private final Set<String> otherModifiers;
@@ -50,6 +51,14 @@ public class MethodDefinition {
     private final boolean isAbstract;
 
     private String sourceRef;
+    // where the method is declared in sdl source; unlike sourceRef, it is not rendered
+    private String declarationRef;
+    // set for inherited copies cached by the owner; they are shared and not modified
+    private MethodDefinition inheritedFrom;
+
+    // lazily computed; racy single-check is safe because the values are immutable
+    private MethodSignature cachedSignature;
+    private String cachedReducedSignature;
 
     /**
      * Is this method public.
@@ -91,24 +100,6 @@ public class MethodDefinition {
         return owner;
     }
 
-    /**
-     * Parse abstract method (no body).
-     * @param source valid text for interface method or abstract method
-     * @param owner class or interface to which this method belongs
-     * @return constructed method
-     */
-    public static MethodDefinition parseAbstract(final String source, final AbstractTypeDefinition owner) {
-        try {
-            final SimpleNode simpleNode = SymqleParser.createParser(source).AbstractMethodDeclaration();
-            SyntaxTree syntaxTree = new SyntaxTree(simpleNode, source);
-            return new MethodDefinition(syntaxTree, owner);
-        } catch (ParseException e) {
-            throw new RuntimeException("Internal error", e);
-        } catch (GrammarException e) {
-            throw new RuntimeException("Internal error", e);
-        }
-    }
-
     /**
      * Parse class method.
      * @param source valid text method
@@ -156,6 +147,186 @@ public class MethodDefinition {
         isAbstract = anAbstract;
     }
 
+    /**
+     * Starts construction of a method without parsing its source.
+     * By default the method has package scope, no modifiers, no type parameters, no formal parameters,
+     * returns void and has no body (semicolon).
+     * The constructed method is not added to the owner.
+     * @param owner class or interface to which the method will belong
+     * @param name method name
+     * @return new builder
+     */
+    public static Builder builder(final AbstractTypeDefinition owner, final String name) {
+        return new Builder(owner, name);
+    }
+
+    /**
+     * Constructs MethodDefinition directly from its parts.
+     * Produces the same result as parsing of equivalent source text.
+     */
+    public static final class Builder {
+        private final AbstractTypeDefinition owner;
+        private final String name;
+        private String comment = "";
+        private String accessModifier = "";
+        private final Set<String> otherModifiers = new HashSet<String>();
+        private TypeParameters typeParameters = new TypeParameters(Collections.<TypeParameter>emptyList());
+        private Type resultType = Type.VOID;
+        private final List<FormalParameter> formalParameters = new ArrayList<FormalParameter>();
+        private final Set<Type> thrownExceptions = new HashSet<Type>();
+        private String body = ";";
+        private String sourceRef;
+        private String declarationRef;
+
+        private Builder(final AbstractTypeDefinition owner, final String name) {
+            this.owner = owner;
+            this.name = name;
+        }
+
+        /**
+         * Sets comment preceding the method declaration.
+         * @param newComment comment text including all whitespace up to the declaration
+         * @return {@code this}
+         */
+        public Builder comment(final String newComment) {
+            this.comment = newComment;
+            return this;
+        }
+
+        /**
+         * Sets access modifier.
+         * @param newAccessModifier "public", "protected", "private" or empty string for package scope
+         * @return {@code this}
+         */
+        public Builder accessModifier(final String newAccessModifier) {
+            this.accessModifier = newAccessModifier;
+            return this;
+        }
+
+        /**
+         * Adds modifiers other than access modifier: static, final etc.
+         * @param modifiers modifiers to add
+         * @return {@code this}
+         */
+        public Builder modifiers(final Collection<String> modifiers) {
+            this.otherModifiers.addAll(modifiers);
+            return this;
+        }
+
+        /**
+         * Adds modifiers other than access modifier: static, final etc.
+         * @param modifiers modifiers to add
+         * @return {@code this}
+         */
+        public Builder modifiers(final String... modifiers) {
+            return modifiers(Arrays.asList(modifiers));
+        }
+
+        /**
+         * Sets type parameters.
+         * @param newTypeParameters type parameters of the method
+         * @return {@code this}
+         */
+        public Builder typeParameters(final TypeParameters newTypeParameters) {
+            this.typeParameters = newTypeParameters;
+            return this;
+        }
+
+        /**
+         * Sets result type.
+         * @param newResultType result type; {@link Type#VOID} for void methods
+         * @return {@code this}
+         */
+        public Builder resultType(final Type newResultType) {
+            this.resultType = newResultType;
+            return this;
+        }
+
+        /**
+         * Appends a formal parameter.
+         * @param formalParameter parameter to append
+         * @return {@code this}
+         */
+        public Builder parameter(final FormalParameter formalParameter) {
+            this.formalParameters.add(formalParameter);
+            return this;
+        }
+
+        /**
+         * Appends formal parameters.
+         * @param parameters parameters to append, in order
+         * @return {@code this}
+         */
+        public Builder parameters(final Collection<FormalParameter> parameters) {
+            this.formalParameters.addAll(parameters);
+            return this;
+        }
+
+        /**
+         * Adds thrown exceptions.
+         * @param exceptions exception types
+         * @return {@code this}
+         */
+        public Builder throwing(final Collection<Type> exceptions) {
+            this.thrownExceptions.addAll(exceptions);
+            return this;
+        }
+
+        /**
+         * Sets method body.
+         * @param newBody body text including braces and preceding whitespace; semicolon for abstract methods
+         * @return {@code this}
+         */
+        public Builder body(final String newBody) {
+            this.body = newBody;
+            return this;
+        }
+
+        /**
+         * Sets location of sdl source.
+         * @param newSourceRef reference in file:line format
+         * @return {@code this}
+         */
+        public Builder sourceRef(final String newSourceRef) {
+            this.sourceRef = newSourceRef;
+            return this;
+        }
+
+        /**
+         * Sets location of the declaration in sdl source, which does not appear in generated code.
+         * See {@link MethodDefinition#getDeclarationRef()}.
+         * @param newDeclarationRef reference in file:line format
+         * @return {@code this}
+         */
+        public Builder declarationRef(final String newDeclarationRef) {
+            this.declarationRef = newDeclarationRef;
+            return this;
+        }
+
+        /**
+         * Constructs the method.
+         * @return new method; not added to the owner
+         */
+        public MethodDefinition build() {
+            final MethodDefinition method = new MethodDefinition(
+                    comment,
+                    accessModifier,
+                    otherModifiers,
+                    typeParameters,
+                    resultType,
+                    name,
+                    formalParameters,
+                    thrownExceptions,
+                    body,
+                    owner,
+                    owner.methodIsPublic(accessModifier),
+                    owner.methodIsAbstract(otherModifiers));
+            method.setSourceRef(sourceRef);
+            method.setDeclarationRef(declarationRef);
+            return method;
+        }
+    }
+
     /**
      * Construct from AST.
      * @param node syntax tree
@@ -180,7 +351,7 @@ public class MethodDefinition {
             // void
             resultType = Type.VOID;
         } else {
-            resultType = new Type(resultTypes.get(0));
+            resultType = Type.of(resultTypes.get(0));
         }
 
         final List<SyntaxTree> nodes = node.find("MethodDeclarator.Identifier");
@@ -212,12 +383,45 @@ public class MethodDefinition {
      * Example: equal(int[],int[])
      */
     public final String signature() {
-        // TODO
-        HashSet<String> typeParameterNames = new HashSet<String>(typeParameters.names());
-        typeParameterNames.addAll(owner.getTypeParameters().names());
-        Collection<String> formalParameterErasures =
-                Utils.map(formalParameters, FormalParameter.f_erasure(typeParameterNames));
-        return name + "(" + Utils.format(formalParameterErasures, "", ",", "") + ")";
+        return getSignature().toString();
+    }
+
+    /**
+     * Method signature as a key object. Computed once: all parts of the signature are immutable.
+     * @return signature, {@link #signature()} is its string form
+     */
+    public final MethodSignature getSignature() {
+        MethodSignature result = cachedSignature;
+        if (result == null) {
+            final Set<String> typeParameterNames = new HashSet<String>(typeParameters.names());
+            typeParameterNames.addAll(owner.getTypeParameters().names());
+            result = new MethodSignature(name,
+                    new ArrayList<String>(Utils.map(formalParameters, FormalParameter.f_erasure(typeParameterNames))));
+            cachedSignature = result;
+        }
+        return result;
+    }
+
+    /**
+     * Signature of this method but the first argument.
+     * Type parameters of the owner are not taken into account.
+     * @return reduced signature. For no-arg method returns method name.
+     */
+    public final String reducedSignature() {
+        String result = cachedReducedSignature;
+        if (result == null) {
+            if (formalParameters.isEmpty()) {
+                result = name;
+            } else {
+                final Set<String> typeParameterNames = new HashSet<String>(typeParameters.names());
+                result = name + "("
+                        + Utils.format(formalParameters.subList(1, formalParameters.size()),
+                            "", ",", "", FormalParameter.f_erasure(typeParameterNames))
+                        + ")";
+            }
+            cachedReducedSignature = result;
+        }
+        return result;
     }
 
     /**
@@ -241,15 +445,28 @@ public class MethodDefinition {
      * @return declaration
      */
     public final String declaration() {
-        final String firstAttempt = formatDeclaration(", ");
-        if (firstAttempt.length() < 100) {
-            return firstAttempt;
+        final StringBuilder builder = new StringBuilder();
+        try {
+            renderDeclaration(builder);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new IllegalStateException(e);
+        }
+        return builder.toString();
+    }
+
+    private void renderDeclaration(final Appendable out) throws IOException {
+        // measure the single-line form without building it
+        final LengthCounter counter = new LengthCounter();
+        renderDeclaration(counter, ", ");
+        if (counter.length < 100) {
+            renderDeclaration(out, ", ");
         } else {
-            return formatDeclaration("," + Utils.LINE_BREAK + "            ");
+            renderDeclaration(out, "," + Utils.LINE_BREAK + "            ");
         }
     }
 
-    private String formatDeclaration(final String parameterSeparator) {
+    private void renderDeclaration(final Appendable out, final String parameterSeparator) throws IOException {
         Set<String> sortedExceptions =
                 new TreeSet<String>(Utils.map(thrownExceptions, new F<Type, String, RuntimeException>() {
             @Override
@@ -257,36 +474,65 @@ public class MethodDefinition {
                 return type.toString();  //To change body of implemented methods use File | Settings | File Templates.
             }
         }));
-        StringBuilder builder = new StringBuilder();
         // a hack here: protected static methods make little sense (they are not inherited); show them as
         // package scope
         if (!(otherModifiers.contains("static") && accessModifier.equals("protected"))) {
-            builder.append(accessModifier);
+            out.append(accessModifier);
             if (!"".equals(accessModifier)) {
-                builder.append(" ");
+                out.append(" ");
             }
         }
-        builder.append(Utils.format(new ArrayList<String>(otherModifiers), "", " ", " "));
-        builder.append(typeParameters);
+        out.append(Utils.format(new ArrayList<String>(otherModifiers), "", " ", " "));
+        out.append(typeParameters.toString());
         if (!typeParameters.isEmpty()) {
-            builder.append(" ");
+            out.append(" ");
         }
-        builder.append(resultType).append(" ");
-        builder.append(name)
-                .append("(")
-                .append(Utils.format(formalParameters, "", parameterSeparator, ""))
-                .append(")")
+        resultType.render(out);
+        out.append(" ");
+        out.append(name).append("(");
+        Utils.render(out, formalParameters, "", parameterSeparator, "");
+        out.append(")")
                 .append(Utils.format(sortedExceptions, " throws ", ", ", ""));
-        return builder.toString();
+    }
+
+    @Override
+    public final void render(final Appendable out) throws IOException {
+        if (sourceRef != null) {
+            out.append(Utils.LINE_BREAK).append("// ").append(sourceRef).append(Utils.LINE_BREAK);
+        }
+        out.append(getComment());
+        renderDeclaration(out);
+        out.append(body);
     }
 
     @Override
     public final String toString() {
-        final String sourceRefComment =
-                sourceRef == null
-                        ? ""
-                        : Utils.LINE_BREAK + "// " + sourceRef + Utils.LINE_BREAK;
-        return sourceRefComment + comment + declaration() + body;
+        return Utils.asString(this);
+    }
+
+    /**
+     * Appendable, which only counts characters.
+     */
+    private static class LengthCounter implements Appendable {
+        private int length = 0;
+
+        @Override
+        public Appendable append(final CharSequence csq) {
+            length += String.valueOf(csq).length();
+            return this;
+        }
+
+        @Override
+        public Appendable append(final CharSequence csq, final int start, final int end) {
+            length += end - start;
+            return this;
+        }
+
+        @Override
+        public Appendable append(final char c) {
+            length++;
+            return this;
+        }
     }
 
     /**
@@ -335,7 +581,7 @@ public class MethodDefinition {
         newModifiers.addAll(targetOwner.implicitMethodModifiers(this));
         String newAccessModifier = targetOwner.implicitMethodAccessModifier(this);
         return new MethodDefinition(
-                comment,
+                getComment(),
                 newAccessModifier,
                 newModifiers,
                 this.typeParameters,
@@ -358,7 +604,7 @@ public class MethodDefinition {
      * @return true if matches
      */
     public final boolean matches(final MethodDefinition other) {
-        if (!signature().equals(other.signature())) {
+        if (!getSignature().equals(other.getSignature())) {
             return false;
         }
         final List<TypeParameter> myParamList = typeParameters.list();
@@ -368,7 +614,7 @@ public class MethodDefinition {
         }
         final Map<String, TypeArgument> mapping = new HashMap<String, TypeArgument>();
         for (int i = 0; i < myParamList.size(); i++) {
-            mapping.put(otherParamList.get(i).getName(), new TypeArgument(myParamList.get(i).getName()));
+            mapping.put(otherParamList.get(i).getName(), TypeArgument.of(myParamList.get(i).getName()));
         }
         final MethodDefinition adjusted = other.replaceParams(owner, mapping);
             return adjusted.resultType.equals(resultType)
@@ -458,7 +704,7 @@ public class MethodDefinition {
             newModifiers.add("final");
         }
         final MethodDefinition implementation = new MethodDefinition(
-                comment,
+                getComment(),
                 newAccessModifier,
                 newModifiers,
                 typeParameters,
@@ -484,7 +730,9 @@ public class MethodDefinition {
         if (isAbstract()) {
             throw new ModelException("Abstract method cannot be static");
         }
+        assertNotShared();
         otherModifiers.add("static");
+        owner.markModified();
     }
 
      /**
@@ -502,7 +750,7 @@ public class MethodDefinition {
         newModifiers.remove("volatile");
         owner.addMethod(
             new MethodDefinition(
-                    comment,
+                    getComment(),
                     newAccessModifier,
                     newModifiers,
                     typeParameters,
@@ -530,7 +778,25 @@ public class MethodDefinition {
      * @return comment
      */
     public final String getComment() {
-        return comment;
+        return inheritedFrom != null ? inheritedFrom.getComment() : comment;
+    }
+
+    /**
+     * Location of the method declaration in sdl source, if the method is declared explicitly.
+     * Unlike {@link #getSourceRef()}, it does not appear in generated code.
+     * @return file:line; null if not declared explicitly
+     */
+    public final String getDeclarationRef() {
+        return declarationRef;
+    }
+
+    /**
+     * Sets location of the method declaration in sdl source.
+     * @param declarationRef reference in file:line format
+     */
+    final void setDeclarationRef(final String declarationRef) {
+        assertNotShared();
+        this.declarationRef = declarationRef;
     }
 
     /**
@@ -539,6 +805,7 @@ public class MethodDefinition {
      * corresponding to syntax rule or something else.
      */
     public final void setSourceRef(final SyntaxTree node) {
+        assertNotShared();
         final String fileName = new File(node.getFileName()).getName();
         this.sourceRef = fileName + ":" + node.getLine();
     }
@@ -548,6 +815,7 @@ public class MethodDefinition {
      * @param sourceRef reference in file:line format
      */
     public final void setSourceRef(final String sourceRef) {
+        assertNotShared();
         this.sourceRef = sourceRef;
     }
 
@@ -564,6 +832,24 @@ public class MethodDefinition {
      * @param newComment replacement
      */
     public final void replaceComment(final String newComment) {
+        assertNotShared();
         comment = newComment;
     }
+
+    /**
+     * Marks {@code this} as inherited copy of a method, which is cached in the method table of the owner.
+     * The copy is shared by all callers, so it cannot be modified; its comment follows the comment
+     * of the original method.
+     * @param original the method {@code this} has been created from by {@link #override(AbstractTypeDefinition, Model)}
+     */
+    final void shareAsInherited(final MethodDefinition original) {
+        inheritedFrom = original;
+    }
+
+    private void assertNotShared() {
+        if (inheritedFrom != null) {
+            throw new IllegalStateException("Inherited method " + signature() + " of " + owner.getName()
+                    + " is shared and cannot be modified; override the original method instead");
+        }
+    }
 }
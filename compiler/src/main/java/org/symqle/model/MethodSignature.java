@@ -0,0 +1,92 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Method name and erasures of its formal parameters.
+ * Immutable; hash code and string form are computed once.
+ * String form is the same as {@link MethodDefinition#signature()}, e.g. {@code equal(int[],int[])}.
+ * @author Alexander Izyurov
+ */
+public final class MethodSignature {
+    private final String name;
+    private final String[] erasures;
+    private final int hash;
+    private final String asString;
+
+    /**
+     * Constructs signature from parts.
+     * @param name method name
+     * @param erasures erasures of formal parameter types
+     */
+    public MethodSignature(final String name, final List<String> erasures) {
+        this.name = name;
+        this.erasures = erasures.toArray(new String[erasures.size()]);
+        this.hash = 31 * name.hashCode() + Arrays.hashCode(this.erasures);
+        final StringBuilder builder = new StringBuilder(name).append("(");
+        for (int i = 0; i < this.erasures.length; i++) {
+            if (i > 0) {
+                builder.append(",");
+            }
+            builder.append(this.erasures[i]);
+        }
+        this.asString = builder.append(")").toString();
+    }
+
+    /**
+     * Method name.
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Number of formal parameters.
+     * @return parameter count
+     */
+    public int getParameterCount() {
+        return erasures.length;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final MethodSignature that = (MethodSignature) o;
+        return hash == that.hash
+                && name.equals(that.name)
+                && Arrays.equals(erasures, that.erasures);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return asString;
+    }
+}
@@ -16,8 +16,8 @@
 
 package org.symqle.model;
 
+import org.symqle.processor.CompilationReport;
 import org.symqle.util.TSort;
-import org.symqle.util.Utils;
 
 import java.util.*;
 
@@ -33,21 +33,115 @@ public final class Model {
     private final Set<String> caseInsensitiveClassNames = new HashSet<>();
 
     private final List<ImplicitConversion> conversions = new ArrayList<>();
+    private final Map<String, List<ImplicitConversion>> conversionsByFromTypeName = new HashMap<>();
+    // memoized findAvailableConversions() results; cleared when a conversion is added
+    private final Map<Type, Map<MethodDefinition, Type>> availableConversions = new HashMap<>();
     private final Map<MethodDefinition, Set<String>> explicitSymqleMethods = new LinkedHashMap<>();
+    private final Map<String, List<MethodDefinition>> explicitSymqleMethodsByFirstParameter = new HashMap<>();
+    private final Map<String, List<MethodDefinition>> explicitSymqleMethodsByReducedSignature = new HashMap<>();
+    // built on demand, reset when an explicit method is added
+    private Collection<List<MethodDefinition>> ambiguousSymqleMethodGroups;
     private final Map<MethodDefinition, AnonymousClass> anonymousClassByMethod = new HashMap<>();
     private final Map<String, List<String>> rulesByTargetTypeName = new HashMap<>();
+    private final Map<String, List<String>> ruleSourceRefsByTargetTypeName = new HashMap<>();
 
     // key is "reduced signature" -name and afgumetns but the first one
     private final Map<String, Boolean> symqleMethodUniqueness = new HashMap<>();
 
     private final List<InterfaceDefinition> testInterfaces = new ArrayList<>();
 
+    private final CompilationReport report;
+
+    private int anonymousClassCounter = 0;
+
+    /**
+     * Constructs empty model with its own compilation report.
+     */
+    public Model() {
+        this(new CompilationReport());
+    }
+
+    /**
+     * Constructs empty model, which records phase timings and statistics to a given report.
+     * @param report compilation report
+     */
+    public Model(final CompilationReport report) {
+        this.report = report;
+    }
+
+    /**
+     * Report of the compilation, which builds this model.
+     * @return the report
+     */
+    public CompilationReport getReport() {
+        return report;
+    }
+
+    /**
+     * Unique name for an anonymous class. Names depend only on the order of calls for this model.
+     * @return the name
+     */
+    public String nextAnonymousClassName() {
+        return "anonymous$" + anonymousClassCounter++;
+    }
+
     /**
      * Add an implicit conversion to model..
      * @param conversion what to add
      */
     public void addConversion(final ImplicitConversion conversion) {
         conversions.add(conversion);
+        final String fromTypeName = conversion.getFrom().getSimpleName();
+        List<ImplicitConversion> sameFrom = conversionsByFromTypeName.get(fromTypeName);
+        if (sameFrom == null) {
+            sameFrom = new ArrayList<ImplicitConversion>();
+            conversionsByFromTypeName.put(fromTypeName, sameFrom);
+        }
+        sameFrom.add(conversion);
+        availableConversions.clear();
+    }
+
+    /**
+     * Implicit conversions, which take a given type as argument.
+     * @param fromTypeName simple name of argument type
+     * @return immutable list of conversions in the order they were added
+     */
+    public List<ImplicitConversion> getConversionsFrom(final String fromTypeName) {
+        final List<ImplicitConversion> sameFrom = conversionsByFromTypeName.get(fromTypeName);
+        return sameFrom == null
+                ? Collections.<ImplicitConversion>emptyList()
+                : Collections.unmodifiableList(sameFrom);
+    }
+
+    /**
+     * Implicit conversions applicable to a given type. Key is conversion method, value is returned type.
+     * The result is memoized for each type until next {@link #addConversion(ImplicitConversion)}.
+     * @param type the type of conversion argument
+     * @return immutable map of available conversions
+     * @throws ModelException wrong model
+     */
+    public Map<MethodDefinition, Type> findAvailableConversions(final Type type) throws ModelException {
+        // types with wildcards are not cached: each wildcard is a distinct type
+        final boolean cacheable = type.isInterned();
+        Map<MethodDefinition, Type> result = cacheable ? availableConversions.get(type) : null;
+        if (result == null) {
+            final Map<MethodDefinition, Type> map = new HashMap<MethodDefinition, Type>();
+            for (ImplicitConversion conversion : getConversionsFrom(type.getSimpleName())) {
+                final Type fromType = conversion.getFrom();
+                final Map<String, TypeArgument> replacementMap =
+                        conversion.getTypeParameters().inferTypeArguments(fromType, type);
+                final Type resultType = conversion.getTo().replaceParams(replacementMap);
+                final Type argType = fromType.replaceParams(replacementMap);
+                if (argType.equals(type)) {
+                    map.put(conversion.getConversionMethod(), resultType);
+                }
+            }
+            result = Collections.unmodifiableMap(map);
+            if (cacheable) {
+                availableConversions.put(type, result);
+            }
+        }
+        return result;
     }
 
     /**
@@ -82,9 +176,26 @@ public final class Model {
                                   final AnonymousClass anonymousClass,
                                   final Collection<String> requiredImports) {
         explicitSymqleMethods.put(method, new HashSet<String>(requiredImports));
+        final List<FormalParameter> formalParameters = method.getFormalParameters();
+        if (!formalParameters.isEmpty()) {
+            final String firstParameterTypeName = formalParameters.get(0).getType().getSimpleName();
+            List<MethodDefinition> sameFirstParameter = explicitSymqleMethodsByFirstParameter.get(firstParameterTypeName);
+            if (sameFirstParameter == null) {
+                sameFirstParameter = new ArrayList<MethodDefinition>();
+                explicitSymqleMethodsByFirstParameter.put(firstParameterTypeName, sameFirstParameter);
+            }
+            sameFirstParameter.add(method);
+        }
+        ambiguousSymqleMethodGroups = null;
         final String key = reducedSignature(method);
         final Boolean isKnown = symqleMethodUniqueness.get(key);
         symqleMethodUniqueness.put(key, isKnown == null);
+        List<MethodDefinition> sameReducedSignature = explicitSymqleMethodsByReducedSignature.get(key);
+        if (sameReducedSignature == null) {
+            sameReducedSignature = new ArrayList<MethodDefinition>();
+            explicitSymqleMethodsByReducedSignature.put(key, sameReducedSignature);
+        }
+        sameReducedSignature.add(method);
         anonymousClassByMethod.put(method, anonymousClass);
     }
 
@@ -95,16 +206,7 @@ public final class Model {
      * @return reduced signature. For no-arg method returns method name.
      */
     public String reducedSignature(final MethodDefinition method) {
-        final List<FormalParameter> formalParameters = method.getFormalParameters();
-        if (formalParameters.size() == 0) {
-            return method.getName();
-        } else {
-            HashSet<String> typeParameterNames = new HashSet<String>(method.getTypeParameters().names());
-            return method.getName() + "("
-                    + Utils.format(formalParameters.subList(1, formalParameters.size()),
-                        "", ",", "", FormalParameter.f_erasure(typeParameterNames))
-                    + ")";
-        }
+        return method.reducedSignature();
     }
 
 
@@ -125,6 +227,60 @@ public final class Model {
         return Collections.unmodifiableList(conversions);
     }
 
+    /**
+     * Symqle methods, not associated with syntax rules, which take a given type as the first argument.
+     * @param firstParameterTypeName simple name of the first argument type
+     * @return immutable list of methods in the order they were added
+     */
+    public List<MethodDefinition> getExplicitSymqleMethods(final String firstParameterTypeName) {
+        final List<MethodDefinition> sameFirstParameter =
+                explicitSymqleMethodsByFirstParameter.get(firstParameterTypeName);
+        return sameFirstParameter == null
+                ? Collections.<MethodDefinition>emptyList()
+                : Collections.unmodifiableList(sameFirstParameter);
+    }
+
+    /**
+     * Symqle methods, not associated with syntax rules, which have the same reduced signature.
+     * These methods decide whether each of them is unambiguous, see {@link #isUnambiguous(MethodDefinition)}.
+     * @param reducedSignature see {@link #reducedSignature(MethodDefinition)}
+     * @return immutable list of methods in the order they were added
+     */
+    public List<MethodDefinition> getExplicitSymqleMethodsWithReducedSignature(final String reducedSignature) {
+        final List<MethodDefinition> sameReducedSignature =
+                explicitSymqleMethodsByReducedSignature.get(reducedSignature);
+        return sameReducedSignature == null
+                ? Collections.<MethodDefinition>emptyList()
+                : Collections.unmodifiableList(sameReducedSignature);
+    }
+
+    /**
+     * Ambiguous Symqle methods, not associated with syntax rules, grouped by reduced signature.
+     * Private and protected methods are not included.
+     * See {@link #isUnambiguous(MethodDefinition)}, {@link #reducedSignature(MethodDefinition)}.
+     * @return immutable collection of groups
+     */
+    public Collection<List<MethodDefinition>> getAmbiguousSymqleMethodGroups() {
+        if (ambiguousSymqleMethodGroups == null) {
+            final Map<String, List<MethodDefinition>> groups = new HashMap<String, List<MethodDefinition>>();
+            for (MethodDefinition method: explicitSymqleMethods.keySet()) {
+                if (!isUnambiguous(method)
+                        && !method.getAccessModifier().equals("private")
+                        && !method.getAccessModifier().equals("protected")) {
+                    final String key = reducedSignature(method);
+                    List<MethodDefinition> list = groups.get(key);
+                    if (list == null) {
+                        list = new ArrayList<MethodDefinition>();
+                        groups.put(key, list);
+                    }
+                    list.add(method);
+                }
+            }
+            ambiguousSymqleMethodGroups = Collections.unmodifiableCollection(groups.values());
+        }
+        return ambiguousSymqleMethodGroups;
+    }
+
     /**
      * List all Symqle methods, not associated with syntax rules.
      * @return all explicitly declared methods.
@@ -280,14 +436,19 @@ public final class Model {
      * other java semantic information should be stripped, just plain BNF.
      * @param targetTypeName rule goal
      * @param rule rule body
+     * @param sourceRef location of the rule in the source, file:line
      */
-    public void addRule(final String targetTypeName, final String rule) {
+    public void addRule(final String targetTypeName, final String rule, final String sourceRef) {
         List<String> rules = rulesByTargetTypeName.get(targetTypeName);
+        List<String> sourceRefs = ruleSourceRefsByTargetTypeName.get(targetTypeName);
         if (rules == null) {
             rules = new ArrayList<String>();
             rulesByTargetTypeName.put(targetTypeName, rules);
+            sourceRefs = new ArrayList<String>();
+            ruleSourceRefsByTargetTypeName.put(targetTypeName, sourceRefs);
         }
         rules.add(rule);
+        sourceRefs.add(sourceRef);
     }
 
     /**
@@ -301,6 +462,19 @@ public final class Model {
         return rules == null ? null : Collections.unmodifiableList(rules);
     }
 
+    /**
+     * Locations of syntax rules for given target, in the same order as {@link #getRules(String)}.
+     * Rules for a type may come from other sources than the type itself.
+     * @param targetTypeName rule target
+     * @return locations in file:line format; empty if there are no rules
+     */
+    public List<String> getRuleSourceRefs(final String targetTypeName) {
+        final List<String> sourceRefs = ruleSourceRefsByTargetTypeName.get(targetTypeName);
+        return sourceRefs == null
+                ? Collections.<String>emptyList()
+                : Collections.unmodifiableList(sourceRefs);
+    }
+
     /**
      * List all model classes topologically sorted from ancestors to descendants.
      * @return list of class definitions. The list is mutable, changes do not affect model.
@@ -20,6 +20,7 @@ import org.symqle.parser.SyntaxTree;
 import org.symqle.processor.GrammarException;
 import org.symqle.util.Utils;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -36,6 +37,7 @@ public class ProductionRule {
     private final List<String> elementNames;
     private final String targetTypeName;
     private final String shortRule;
+    private final String sourceRef;
 
     /**
      * Construct from AST.
@@ -53,7 +55,7 @@ public class ProductionRule {
         targetTypeName = targetType.getSimpleName();
         syntaxBuilder.append(targetTypeName).append(" ::=");
         nameBuilder.append(targetType.getSimpleName()).append("_is");
-        final Type sqlType = new Type("SqlBuilder");
+        final Type sqlType = Type.of("SqlBuilder");
         // at most one type by syntax; no type if implicit (in this case it is targetType)
         for (SyntaxTree element: node.find("ProductionElement")) {
             final List<Type> typeList = element.find("ClassOrInterfaceType", Type.CONSTRUCT);
@@ -73,6 +75,7 @@ public class ProductionRule {
         name = nameBuilder.toString();
         syntax = syntaxBuilder.toString();
         shortRule = shortFormBuilder.toString();
+        sourceRef = new File(node.getFileName()).getName() + ":" + node.getLine();
     }
 
     /**
@@ -102,6 +105,14 @@ public class ProductionRule {
         return name;
     }
 
+    /**
+     * Location in SDL source.
+     * @return fileName:line
+     */
+    public final String getSourceRef() {
+        return sourceRef;
+    }
+
     @Override
     public final String toString() {
         return syntax;
@@ -0,0 +1,33 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.model;
+
+import java.io.IOException;
+
+/**
+ * Model element, which can write its Java source representation to a character stream.
+ * {@code toString()} of implementations returns the same text.
+ * @author Alexander Izyurov
+ */
+public interface Renderable {
+    /**
+     * Write Java source of this element.
+     * @param out where to write
+     * @throws IOException write failure
+     */
+    void render(Appendable out) throws IOException;
+}
@@ -0,0 +1,40 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.model;
+
+/**
+ * Receives source references of elements while a type definition is rendered,
+ * so that lines of generated code can be mapped back to sdl sources.
+ * @author Alexander Izyurov
+ */
+public interface SourceRefListener {
+
+    /**
+     * Listener, which ignores all notifications.
+     */
+    SourceRefListener NONE = new SourceRefListener() {
+        @Override
+        public void startElement(final String sourceRef) {
+        }
+    };
+
+    /**
+     * Called before an element is rendered. The element ends where the next one starts.
+     * @param sourceRef source reference of the element, like "Grammar.sdl:12"; null if unknown
+     */
+    void startElement(String sourceRef);
+}
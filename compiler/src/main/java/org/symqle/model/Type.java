@@ -18,7 +18,9 @@ package org.symqle.model;
 
 import org.symqle.parser.SyntaxTree;
 import org.symqle.processor.GrammarException;
+import org.symqle.util.Utils;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -27,24 +29,69 @@ import java.util.Set;
  * Java type. Object or primitive type.
  * @author Alexander Izyurov
  */
-public class Type {
+public class Type implements Renderable {
+
+    private static final Interner<Type> INTERNER = new Interner<Type>();
 
     /**
      * Used as return type for void methods.
      */
-    public static final Type VOID = new Type("void");
+    public static final Type VOID = Type.of("void");
 
     private final String name;
     private final TypeArguments typeArguments;
 
     private final int arrayDimensions;
 
+    private final int hash;
+
     /**
      * Construct from AST.
      * @param node syntax tree
+     * @return the type
      * @throws GrammarException wrong tree
      */
-    public Type(final SyntaxTree node) throws GrammarException {
+    public static Type of(final SyntaxTree node) throws GrammarException {
+        return new Type(node).intern();
+    }
+
+    /**
+     * Construct from name. No type arguments, no arrays.
+     * @param name plain class name or primitive type name
+     * @return the type
+     */
+    public static Type of(final String name) {
+        return of(name, TypeArguments.EMPTY, 0);
+    }
+
+    /**
+     * Generic factory method.
+     * @param name type name
+     * @param typeArguments type arguments
+     * @param arrayDimensions number of following []'s
+     * @return the type
+     */
+    public static Type of(final String name, final TypeArguments typeArguments, final int arrayDimensions) {
+        return new Type(name, typeArguments, arrayDimensions).intern();
+    }
+
+    /**
+     * Structurally equal types share one instance unless they contain wildcard type arguments:
+     * each wildcard is a distinct anonymous type, identified by its instance.
+     */
+    private Type intern() {
+        return typeArguments.isInterned() ? INTERNER.intern(this) : this;
+    }
+
+    /**
+     * True if this instance is shared by all structurally equal types.
+     * @return false if {@code this} has wildcard type arguments
+     */
+    final boolean isInterned() {
+        return typeArguments.isInterned();
+    }
+
+    private Type(final SyntaxTree node) throws GrammarException {
         final SyntaxTree start = node.getType().equals("Type") ? node.getChildren().get(0) : node;
 
         AssertNodeType.assertOneOf(start,
@@ -57,14 +104,14 @@ public class Type {
             }
             final SyntaxTree identifierWithTypeArgumentsNode = chain.get(0);
             name = identifierWithTypeArgumentsNode.find("Identifier", SyntaxTree.VALUE).get(0);
-            typeArguments = new TypeArguments(identifierWithTypeArgumentsNode.find("TypeArguments.TypeArgument",
+            typeArguments = TypeArguments.of(identifierWithTypeArgumentsNode.find("TypeArguments.TypeArgument",
                     TypeArgument.CONSTRUCT));
             arrayDimensions = 0;
         } else if (start.getType().equals("ReferenceType")) {
             final SyntaxTree firstChild = start.getChildren().get(0);
             if (firstChild.getType().equals("PrimitiveType")) {
                 name = firstChild.getValue();
-                typeArguments = new TypeArguments();
+                typeArguments = TypeArguments.EMPTY;
             } else /* ClassOrInterfaceType*/ {
                 final List<SyntaxTree> chain = start.find("ClassOrInterfaceType.IdentifierWithTypeArguments");
                 if (chain.size() > 1) {
@@ -72,7 +119,7 @@ public class Type {
                 }
                 final SyntaxTree identifierWithTypeArgumentsNode = chain.get(0);
                 name = identifierWithTypeArgumentsNode.find("Identifier", SyntaxTree.VALUE).get(0);
-                typeArguments = new TypeArguments(identifierWithTypeArgumentsNode.find("TypeArguments.TypeArgument",
+                typeArguments = TypeArguments.of(identifierWithTypeArgumentsNode.find("TypeArguments.TypeArgument",
                         TypeArgument.CONSTRUCT));
             }
             arrayDimensions = start.find("ArrayOf").size();
@@ -82,33 +129,28 @@ public class Type {
                 throw new GrammarException("Symqle supports only simple type names", start);
             }
             name = chain.get(0).getValue();
-            typeArguments = new TypeArguments();
+            typeArguments = TypeArguments.EMPTY;
             arrayDimensions = 0;
         } else { /* PrimitiveType */
             name = start.getValue();
-            typeArguments = new TypeArguments();
+            typeArguments = TypeArguments.EMPTY;
             arrayDimensions = 0;
         }
+        this.hash = calculateHash();
     }
 
-    /**
-     * Construct from name. No type arguments, no arrays.
-     * @param name plain class name or primitive type name
-     */
-    public Type(final String name) {
-        this(name, new TypeArguments(), 0);
-    }
-
-    /**
-     * Generic constructor.
-     * @param name type name
-     * @param typeArguments type arguments
-     * @param arrayDimensions number of following []'s
-     */
-    public Type(final String name, final TypeArguments typeArguments, final int arrayDimensions) {
+    private Type(final String name, final TypeArguments typeArguments, final int arrayDimensions) {
         this.name = name;
         this.typeArguments = typeArguments;
         this.arrayDimensions = arrayDimensions;
+        this.hash = calculateHash();
+    }
+
+    private int calculateHash() {
+        int result = name.hashCode();
+        result = 31 * result + arrayDimensions;
+        result = 31 * result + typeArguments.hashCode();
+        return result;
     }
 
     /**
@@ -116,7 +158,7 @@ public class Type {
      * @return new type
      */
     public final Type arrayOf() {
-        return new Type(name, typeArguments, arrayDimensions + 1);
+        return of(name, typeArguments, arrayDimensions + 1);
     }
 
     /**
@@ -152,13 +194,17 @@ public class Type {
     }
 
     @Override
-    public final String toString() {
-        StringBuilder builder = new StringBuilder();
-        builder.append(name).append(typeArguments);
+    public final void render(final Appendable out) throws IOException {
+        out.append(name);
+        typeArguments.render(out);
         for (int i = 0; i < arrayDimensions; i++) {
-            builder.append("[]");
+            out.append("[]");
         }
-        return builder.toString();
+    }
+
+    @Override
+    public final String toString() {
+        return Utils.asString(this);
     }
 
     @Override
@@ -171,23 +217,21 @@ public class Type {
         }
         final Type type = (Type) o;
 
-        return arrayDimensions == type.arrayDimensions
+        return hash == type.hash
+                && arrayDimensions == type.arrayDimensions
                 && name.equals(type.name)
                 && typeArguments.equals(type.typeArguments);
     }
 
     @Override
     public final int hashCode() {
-        int result = name.hashCode();
-        result = 31 * result + arrayDimensions;
-        result = 31 * result + typeArguments.hashCode();
-        return result;
+        return hash;
     }
 
     /**
      * Replace type parameters for type arguments.
      * @param mapping replacement map
-     * @return new type
+     * @return new type; {@code this} if nothing is replaced
      */
     public final Type replaceParams(final Map<String, TypeArgument> mapping) {
         final TypeArgument typeArgument = mapping.get(getSimpleName());
@@ -199,7 +243,8 @@ public class Type {
         } else {
             // no mapping, real type name - proceed with arguments
             // replace my type arguments
-            return new Type(this.getSimpleName(), this.getTypeArguments().replaceParams(mapping), this.arrayDimensions);
+            final TypeArguments newTypeArguments = typeArguments.replaceParams(mapping);
+            return newTypeArguments == typeArguments ? this : of(name, newTypeArguments, arrayDimensions);
         }
     }
 
@@ -235,7 +280,7 @@ public class Type {
                                                 throws ModelException {
         String formalTypeName = formalType.getSimpleName();
         if (parameterMapping.containsKey(formalTypeName)) {
-            final TypeArgument newTypeArgument = new TypeArgument(false, null, this);
+            final TypeArgument newTypeArgument = TypeArgument.of(false, null, this);
             TypeArgument oldMapping = parameterMapping.put(formalTypeName, newTypeArgument);
             if (oldMapping != null && !oldMapping.equals(newTypeArgument)) {
                 throw new ModelException("Cannot infer" + formalTypeName);
@@ -268,7 +313,7 @@ public class Type {
             new F<SyntaxTree, Type, GrammarException>() {
                 @Override
                 public Type apply(final SyntaxTree syntaxTree) throws GrammarException {
-                    return new Type(syntaxTree);
+                    return Type.of(syntaxTree);
                 }
             };
 }
@@ -18,7 +18,9 @@ package org.symqle.model;
 
 import org.symqle.parser.SyntaxTree;
 import org.symqle.processor.GrammarException;
+import org.symqle.util.Utils;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -26,18 +28,60 @@ import java.util.Map;
  * Java type argument.
  * @author Alexander Izyurov
  */
-public class TypeArgument {
+public class TypeArgument implements Renderable {
+    private static final Interner<TypeArgument> INTERNER = new Interner<TypeArgument>();
+
     private final boolean isWildCardArgument;
     // "extends" | "super" | null
     private final String boundType;
     private final Type reference;
+    private final int hash;
 
     /**
      * Construct from AST.
      * @param node syntax tree
+     * @return the type argument
      * @throws GrammarException wrong tree
      */
-    public TypeArgument(final SyntaxTree node)  throws GrammarException {
+    public static TypeArgument of(final SyntaxTree node) throws GrammarException {
+        return new TypeArgument(node).intern();
+    }
+
+    /**
+     * Construct with give properties.
+     * Non-wildcard arguments are interned; each wildcard argument is a new instance,
+     * because it is a distinct anonymous type.
+     * @param wildCardArgument true if wildcard
+     * @param boundType "extends" | "super" | null
+     * @param reference referenced type
+     * @return the type argument
+     */
+    public static TypeArgument of(final boolean wildCardArgument, final String boundType, final Type reference) {
+        return new TypeArgument(wildCardArgument, boundType, reference).intern();
+    }
+
+    /**
+     * Create type argument, which is just type.
+     * @param simpleType source type name
+     * @return the type argument
+     */
+    public static TypeArgument of(final String simpleType) {
+        return of(false, null, Type.of(simpleType));
+    }
+
+    private TypeArgument intern() {
+        return isInterned() ? INTERNER.intern(this) : this;
+    }
+
+    /**
+     * True if this instance is shared by all structurally equal type arguments.
+     * @return false for wildcards and type arguments, which contain wildcards
+     */
+    final boolean isInterned() {
+        return !isWildCardArgument && reference.isInterned();
+    }
+
+    private TypeArgument(final SyntaxTree node)  throws GrammarException {
         AssertNodeType.assertOneOf(node, "TypeArgument");
         final List<Type> references = node.find("ReferenceType", Type.CONSTRUCT);
         if (!references.isEmpty()) {
@@ -51,18 +95,21 @@ public class TypeArgument {
             List<Type> boundReferences = node.find("WildcardBounds.ReferenceType", Type.CONSTRUCT);
             reference = boundReferences.isEmpty() ? null : boundReferences.get(0);
         }
+        hash = calculateHash();
     }
 
-    /**
-     * Construct with give properties.
-     * @param wildCardArgument true if wildcard
-     * @param boundType "extends" | "super" | null
-     * @param reference referenced type
-     */
-    public TypeArgument(final boolean wildCardArgument, final String boundType, final Type reference) {
+    private TypeArgument(final boolean wildCardArgument, final String boundType, final Type reference) {
         isWildCardArgument = wildCardArgument;
         this.boundType = boundType;
         this.reference = reference;
+        hash = calculateHash();
+    }
+
+    private int calculateHash() {
+        int result = (isWildCardArgument ? 1 : 0);
+        result = 31 * result + (boundType != null ? boundType.hashCode() : 0);
+        result = 31 * result + (reference != null ? reference.hashCode() : 0);
+        return result;
     }
 
     /**
@@ -79,7 +126,7 @@ public class TypeArgument {
     public final Type asType() {
         return "super".equals(boundType)
                 || reference == null // "?"
-                ? new Type("Object")
+                ? Type.of("Object")
                 : reference;
     }
 
@@ -91,16 +138,6 @@ public class TypeArgument {
         return isWildCardArgument;
     }
 
-    /**
-     * Create type argument, which is just type.
-     * @param simpleType source type name
-     */
-    public TypeArgument(final String simpleType) {
-        isWildCardArgument = false;
-        boundType = null;
-        reference = new Type(simpleType);
-    }
-
     @Override
     public final boolean equals(final Object o) {
         if (this == o) {
@@ -112,6 +149,9 @@ public class TypeArgument {
 
         final TypeArgument that = (TypeArgument) o;
 
+        if (hash != that.hash) {
+            return false;
+        }
         if (isWildCardArgument != that.isWildCardArgument) {
             return false;
         }
@@ -127,10 +167,7 @@ public class TypeArgument {
 
     @Override
     public final int hashCode() {
-        int result = (isWildCardArgument ? 1 : 0);
-        result = 31 * result + (boundType != null ? boundType.hashCode() : 0);
-        result = 31 * result + (reference != null ? reference.hashCode() : 0);
-        return result;
+        return hash;
     }
 
     /**
@@ -140,14 +177,14 @@ public class TypeArgument {
             new F<SyntaxTree, TypeArgument, GrammarException>() {
                 @Override
                 public TypeArgument apply(final SyntaxTree syntaxTree) throws GrammarException {
-                    return new TypeArgument(syntaxTree);
+                    return TypeArgument.of(syntaxTree);
                 }
             };
 
     /**
      * Create new TypeArgument by replacing type parameters in {@code this}.
      * @param mapping type parameters to arguments mapping
-     * @return new type argument
+     * @return new type argument; {@code this} if nothing is replaced
      */
     public final TypeArgument replaceParams(final Map<String, TypeArgument> mapping) {
         if (isWildCardArgument()) {
@@ -158,8 +195,9 @@ public class TypeArgument {
                 return this;
             }
         } else {
-            return new TypeArgument(isWildCardArgument, boundType,
-                reference == null ? null : reference.replaceParams(mapping));
+            // non-wildcard argument always has a reference
+            final Type newReference = reference.replaceParams(mapping);
+            return newReference == reference ? this : of(false, null, newReference);
         }
     }
 
@@ -210,16 +248,24 @@ public class TypeArgument {
     }
 
     @Override
-    public final String toString() {
-        StringBuilder builder = new StringBuilder();
+    public final void render(final Appendable out) throws IOException {
         if (isWildCardArgument) {
             if (boundType == null) {
-                return "?";
+                out.append("?");
+                return;
             } else {
-                builder.append("? ").append(boundType).append(" ");
+                out.append("? ").append(boundType).append(" ");
             }
         }
-        builder.append(reference);
-        return builder.toString();
+        if (reference == null) {
+            out.append("null");
+        } else {
+            reference.render(out);
+        }
+    }
+
+    @Override
+    public final String toString() {
+        return Utils.asString(this);
     }
 }
@@ -18,6 +18,7 @@ package org.symqle.model;
 
 import org.symqle.util.Utils;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -26,31 +27,56 @@ import java.util.Map;
 /**
  * Type arguments, JLS 5 4.5.1.
  */
-public class TypeArguments {
+public class TypeArguments implements Renderable {
+
+    private static final Interner<TypeArguments> INTERNER = new Interner<TypeArguments>();
+
+    /**
+     * Empty type arguments.
+     */
+    public static final TypeArguments EMPTY = of(Collections.<TypeArgument>emptyList());
 
     private final List<TypeArgument> arguments;
+    private final boolean interned;
+    private final int hash;
 
     /**
      * Construct form arument list.
-      * @param arguments list of arguments
+     * Structurally equal type arguments share one instance unless they contain wildcards.
+     * @param arguments list of arguments
+     * @return the type arguments
      */
-    public TypeArguments(final List<TypeArgument> arguments) {
-        this.arguments = new ArrayList<TypeArgument>(arguments);
+    public static TypeArguments of(final List<TypeArgument> arguments) {
+        final TypeArguments candidate = new TypeArguments(arguments);
+        return candidate.interned ? INTERNER.intern(candidate) : candidate;
     }
 
+    private TypeArguments(final List<TypeArgument> arguments) {
+        this.arguments = new ArrayList<TypeArgument>(arguments);
+        boolean allInterned = true;
+        for (TypeArgument argument : arguments) {
+            allInterned = allInterned && argument.isInterned();
+        }
+        this.interned = allInterned;
+        this.hash = this.arguments.hashCode();
+    }
 
     /**
-     * Empty type arguments.
+     * True if this instance is shared by all structurally equal type arguments.
+     * @return false if contains wildcards
      */
-    public TypeArguments() {
-        this(Collections.<TypeArgument>emptyList());
+    final boolean isInterned() {
+        return interned;
+    }
+
+    @Override
+    public final void render(final Appendable out) throws IOException {
+        Utils.render(out, arguments, "<", ", ", ">");
     }
 
     @Override
     public final String toString() {
-        return arguments.isEmpty()
-                ? ""
-                : Utils.format(arguments, "<", ", ", ">");
+        return Utils.asString(this);
     }
 
     /**
@@ -65,14 +91,17 @@ public class TypeArguments {
     /**
      * Create new TypeArguments by replacing type parameters in {@code this}.
      * @param mapping type parameters to arguments mapping
-     * @return new type arguments.
+     * @return new type arguments; {@code this} if nothing is replaced
      */
     public final TypeArguments replaceParams(final Map<String, TypeArgument> mapping) {
         final List<TypeArgument> result = new ArrayList<TypeArgument>(arguments.size());
+        boolean replaced = false;
         for (TypeArgument arg: arguments) {
-            result.add(arg.replaceParams(mapping));
+            final TypeArgument newArg = arg.replaceParams(mapping);
+            replaced = replaced || newArg != arg;
+            result.add(newArg);
         }
-        return new TypeArguments(result);
+        return replaced ? of(result) : this;
 
     }
 
@@ -87,12 +116,12 @@ public class TypeArguments {
 
         TypeArguments that = (TypeArguments) o;
 
-        return arguments.equals(that.arguments);
+        return hash == that.hash && arguments.equals(that.arguments);
     }
 
     @Override
     public final int hashCode() {
-        return arguments.hashCode();
+        return hash;
     }
 
 }
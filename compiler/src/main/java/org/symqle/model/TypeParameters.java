@@ -83,9 +83,9 @@ public class TypeParameters {
     public final TypeArguments asTypeArguments() {
         List<TypeArgument> arguments = new ArrayList<TypeArgument>(typeParameters.size());
         for (TypeParameter typeParameter: typeParameters) {
-            arguments.add(new TypeArgument(false, null, new Type(typeParameter.getName())));
+            arguments.add(TypeArgument.of(false, null, Type.of(typeParameter.getName())));
         }
-        return new TypeArguments(arguments);
+        return TypeArguments.of(arguments);
     }
 
     /**
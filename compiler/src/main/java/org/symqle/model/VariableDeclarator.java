@@ -42,6 +42,16 @@ public class VariableDeclarator {
         this.initializer = initializers.isEmpty() ? "" : " = " + initializers.get(0);
     }
 
+    /**
+     * Construct from parts.
+     * @param name variable name
+     * @param initializer initializer expression; null if none
+     */
+    public VariableDeclarator(final String name, final String initializer) {
+        this.name = name;
+        this.initializer = initializer == null ? "" : " = " + initializer;
+    }
+
     /**
      * Variable name.
      * @return name
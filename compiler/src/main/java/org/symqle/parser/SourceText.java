@@ -0,0 +1,106 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+
+package org.symqle.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decoded source text of a parsed tree.
+ * Tokens of the tree are assigned their positions in the text, so that text of any node
+ * can be taken as a single slice instead of collecting token images.
+ * @author Alexander Izyurov
+ */
+final class SourceText {
+
+    private final String text;
+
+    private SourceText(final String text) {
+        this.text = text;
+    }
+
+    /**
+     * Collects images of all tokens starting from {@code first} and assigns their positions.
+     * Special tokens preceding {@code first} are included.
+     * @param first first token of the tree
+     * @return the text
+     */
+    static SourceText index(final Token first) {
+        final StringBuilder builder = new StringBuilder();
+        final List<Token> specialTokens = new ArrayList<Token>();
+        int previousEnd = -1;
+        int gaps = 0;
+        for (Token token = first; token != null; token = token.next) {
+            specialTokens.clear();
+            for (Token special = token.specialToken; special != null; special = special.specialToken) {
+                specialTokens.add(special);
+            }
+            int commentOffset = -1;
+            for (int i = specialTokens.size() - 1; i >= 0; i--) {
+                final SymqleParser.MyToken special = (SymqleParser.MyToken) specialTokens.get(i);
+                special.beginOffset = builder.length();
+                builder.append(special.image);
+                special.endOffset = builder.length();
+                // shell-style comment cuts off everything before it
+                if (special.image.startsWith("#")) {
+                    commentOffset = -1;
+                } else if (commentOffset < 0) {
+                    commentOffset = special.beginOffset;
+                }
+            }
+            final SymqleParser.MyToken current = (SymqleParser.MyToken) token;
+            current.beginOffset = builder.length();
+            builder.append(current.image);
+            current.endOffset = builder.length();
+            current.commentOffset = commentOffset < 0 ? current.beginOffset : commentOffset;
+            if (current.commentOffset != previousEnd || current.image.startsWith("#")) {
+                gaps++;
+            }
+            current.gaps = gaps;
+            previousEnd = current.endOffset;
+        }
+        return new SourceText(builder.toString());
+    }
+
+    /**
+     * Preceding comments of a token, same as {@link SyntaxTree#getComments()}.
+     * @param first the token
+     * @return comments; null if the token has no position
+     */
+    String comments(final Token first) {
+        final SymqleParser.MyToken token = (SymqleParser.MyToken) first;
+        return token.beginOffset < 0 ? null : text.substring(token.commentOffset, token.beginOffset);
+    }
+
+    /**
+     * Text from {@code first} to {@code last} inclusive, same as {@link SyntaxTree#getBody()}.
+     * @param first the first token
+     * @param last the last token
+     * @param withComments true to include comments preceding the first token
+     * @return the text; null if it is not a single slice of source text, e.g. if it contains
+     * shell-style comments, or tokens have no positions
+     */
+    String slice(final Token first, final Token last, final boolean withComments) {
+        final SymqleParser.MyToken from = (SymqleParser.MyToken) first;
+        final SymqleParser.MyToken to = (SymqleParser.MyToken) last;
+        if (from.beginOffset < 0 || to.beginOffset < 0 || from.gaps != to.gaps || to.endOffset < from.endOffset) {
+            return null;
+        }
+        return text.substring(withComments ? from.commentOffset : from.beginOffset, to.endOffset);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+
+package org.symqle.parser;
+
+import java.util.Arrays;
+
+/**
+ * Node of the syntax tree built by {@link SymqleParser}.
+ * Keeps an index of child nodes by type, which is built on first lookup,
+ * so the tree should not be modified after lookups.
+ * Text of the node is a slice of decoded source, which is collected once for the whole tree;
+ * it is memoized.
+ * @author Alexander Izyurov
+ */
+public class SymqleNode extends SimpleNode {
+
+    private static final SimpleNode[] NO_NODES = new SimpleNode[0];
+
+    // immutable once built, so may be built concurrently by several threads
+    private volatile ChildIndex childIndex;
+
+    // root only; guarded by this
+    private SourceText sourceText;
+
+    private volatile String comments;
+    private volatile String body;
+    private volatile String image;
+
+    /**
+     * Constructs a node of given type.
+     * @param id node type, one of {@link SymqleParserTreeConstants}
+     */
+    public SymqleNode(final int id) {
+        super(id);
+    }
+
+    /**
+     * Constructs a node of given type.
+     * @param parser the parser
+     * @param id node type, one of {@link SymqleParserTreeConstants}
+     */
+    public SymqleNode(final SymqleParser parser, final int id) {
+        super(parser, id);
+    }
+
+    /**
+     * Child nodes of given type.
+     * @param type node type, one of {@link SymqleParserTreeConstants}
+     * @return children in source order; the array is shared and should not be modified
+     */
+    final SimpleNode[] childrenOfType(final int type) {
+        ChildIndex index = childIndex;
+        if (index == null) {
+            index = new ChildIndex(children);
+            childIndex = index;
+        }
+        return index.get(type);
+    }
+
+    /**
+     * See {@link SyntaxTree#getComments()}.
+     * @return comments preceding this node
+     */
+    final String getComments() {
+        String result = comments;
+        if (result == null) {
+            result = sourceText().comments(firstToken);
+            if (result == null) {
+                result = SyntaxTree.collectComments(firstToken);
+            }
+            comments = result;
+        }
+        return result;
+    }
+
+    /**
+     * See {@link SyntaxTree#getBody()}.
+     * @return text of this node without preceding comments
+     */
+    final String getBody() {
+        String result = body;
+        if (result == null) {
+            result = isEmpty() ? "" : sourceText().slice(firstToken, lastToken, false);
+            if (result == null) {
+                result = SyntaxTree.collectBody(firstToken, lastToken);
+            }
+            body = result;
+        }
+        return result;
+    }
+
+    /**
+     * See {@link SyntaxTree#getImage()}.
+     * @return text of this node with preceding comments
+     */
+    final String getImage() {
+        String result = image;
+        if (result == null) {
+            result = isEmpty() ? getComments() : sourceText().slice(firstToken, lastToken, true);
+            if (result == null) {
+                result = getComments() + getBody();
+            }
+            image = result;
+        }
+        return result;
+    }
+
+    private boolean isEmpty() {
+        // for empty non-terminals jjTree sets lastToken = preceding token
+        // and firstToken = the first token of following non-terminal
+        return lastToken != null && lastToken.next == firstToken;
+    }
+
+    private SourceText sourceText() {
+        SymqleNode root = this;
+        while (root.parent instanceof SymqleNode) {
+            root = (SymqleNode) root.parent;
+        }
+        synchronized (root) {
+            if (root.sourceText == null) {
+                root.sourceText = SourceText.index(root.firstToken);
+            }
+            return root.sourceText;
+        }
+    }
+
+    /**
+     * Children grouped by type. Nodes have few distinct child types, so linear search is fast enough.
+     */
+    private static final class ChildIndex {
+        private final int[] types;
+        private final SimpleNode[][] nodes;
+
+        private ChildIndex(final Node[] children) {
+            final int length = children == null ? 0 : children.length;
+            final int[] distinctTypes = new int[length];
+            final int[] counts = new int[length];
+            int distinct = 0;
+            for (int i = 0; i < length; i++) {
+                final int type = ((SimpleNode) children[i]).id;
+                final int position = indexOf(distinctTypes, distinct, type);
+                if (position < 0) {
+                    distinctTypes[distinct] = type;
+                    counts[distinct++] = 1;
+                } else {
+                    counts[position]++;
+                }
+            }
+            types = Arrays.copyOf(distinctTypes, distinct);
+            nodes = new SimpleNode[distinct][];
+            for (int i = 0; i < distinct; i++) {
+                nodes[i] = new SimpleNode[counts[i]];
+                counts[i] = 0;
+            }
+            for (int i = 0; i < length; i++) {
+                final SimpleNode child = (SimpleNode) children[i];
+                final int position = indexOf(types, distinct, child.id);
+                nodes[position][counts[position]++] = child;
+            }
+        }
+
+        private SimpleNode[] get(final int type) {
+            final int position = indexOf(types, types.length, type);
+            return position < 0 ? NO_NODES : nodes[position];
+        }
+
+        private static int indexOf(final int[] array, final int length, final int value) {
+            for (int i = 0; i < length; i++) {
+                if (array[i] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+
+package org.symqle.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Compiled path for {@link SyntaxTree#find(String)}.
+ * Path is a dot-separated list of node types; "^" points to parent.
+ * Node types are resolved to JJTree node ids once, so matching does not compare strings.
+ * Compiled paths are cached by path string; programs use a limited set of paths, so the cache is not bounded.
+ * @author Alexander Izyurov
+ */
+public final class SyntaxPath {
+
+    private static final int PARENT = -1;
+    // no node has this type, so unknown node types match nothing
+    private static final int UNKNOWN = -2;
+
+    private static final Map<String, Integer> NODE_TYPES = new HashMap<String, Integer>();
+    static {
+        for (int i = 0; i < SymqleParserTreeConstants.jjtNodeName.length; i++) {
+            NODE_TYPES.put(SymqleParserTreeConstants.jjtNodeName[i], i);
+        }
+    }
+
+    private static final ConcurrentMap<String, SyntaxPath> CACHE = new ConcurrentHashMap<String, SyntaxPath>();
+
+    private static final SyntaxPath EMPTY = new SyntaxPath("", new int[0]);
+
+    private final String path;
+    private final int[] steps;
+
+    private SyntaxPath(final String path, final int[] steps) {
+        this.path = path;
+        this.steps = steps;
+    }
+
+    /**
+     * Compiled path for a path string.
+     * @param path dot-separated types of descendants down the hierarchy; null or empty path refers to the node itself
+     * @return compiled path
+     */
+    public static SyntaxPath compile(final String path) {
+        if (path == null || path.isEmpty()) {
+            return EMPTY;
+        }
+        final SyntaxPath cached = CACHE.get(path);
+        if (cached != null) {
+            return cached;
+        }
+        final String[] names = path.split("\\.");
+        final int[] steps = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            final Integer type = NODE_TYPES.get(names[i]);
+            steps[i] = names[i].equals("^")
+                    ? PARENT
+                    : type == null ? UNKNOWN : type;
+        }
+        final SyntaxPath compiled = new SyntaxPath(path, steps);
+        final SyntaxPath existing = CACHE.putIfAbsent(path, compiled);
+        return existing == null ? compiled : existing;
+    }
+
+    /**
+     * Finds all nodes by this path.
+     * @param from starting node
+     * @return found nodes in source order
+     */
+    public List<SyntaxTree> find(final SyntaxTree from) {
+        if (steps.length == 0) {
+            return Collections.singletonList(from);
+        }
+        final List<SyntaxTree> result = new ArrayList<SyntaxTree>();
+        collect(from.getNode(), 0, from.getFileName(), result);
+        return result;
+    }
+
+    private void collect(final SimpleNode node, final int step, final String fileName,
+                         final List<SyntaxTree> result) {
+        if (step == steps.length) {
+            result.add(new SyntaxTree(node, fileName));
+        } else if (steps[step] == PARENT) {
+            if (node.parent != null) {
+                collect((SimpleNode) node.parent, step + 1, fileName, result);
+            }
+        } else if (node instanceof SymqleNode) {
+            for (SimpleNode child : ((SymqleNode) node).childrenOfType(steps[step])) {
+                collect(child, step + 1, fileName, result);
+            }
+        } else {
+            for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+                final SimpleNode child = (SimpleNode) node.jjtGetChild(i);
+                if (child.id == steps[step]) {
+                    collect(child, step + 1, fileName, result);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -19,8 +19,6 @@ package org.symqle.parser;
 import org.symqle.model.F;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -43,11 +41,18 @@ public class SyntaxTree {
 
     private static void collectImage(final Token token, final StringBuilder builder) {
         // break at the top of special tokens or first shell-style comment
-      if (token != null && !token.image.startsWith("#")) {
-          Token specialToken = token.specialToken;
-          collectImage(specialToken, builder);
-          builder.append(token.image);
-      }
+        Token earliest = null;
+        for (Token current = token; current != null && !current.image.startsWith("#");
+                current = current.specialToken) {
+            earliest = current;
+        }
+        if (earliest != null) {
+            // special tokens are linked forward by next; the last one has no next
+            for (Token current = earliest; current != null && current != token; current = current.next) {
+                builder.append(current.image);
+            }
+            builder.append(token.image);
+        }
     }
 
     /**
@@ -111,8 +116,19 @@ public class SyntaxTree {
      * @return comments
      */
     public final String getComments() {
+        return node instanceof SymqleNode
+                ? ((SymqleNode) node).getComments()
+                : collectComments(node.jjtGetFirstToken());
+    }
+
+    /**
+     * Collects comments preceding a token from token images.
+     * @param first the token
+     * @return same as {@link #getComments()}
+     */
+    static String collectComments(final Token first) {
         StringBuilder builder = new StringBuilder();
-        collectImage(node.jjtGetFirstToken().specialToken, builder);
+        collectImage(first.specialToken, builder);
         return builder.toString();
     }
 
@@ -121,7 +137,9 @@ public class SyntaxTree {
      * @return comments + body.
      */
     public final String getImage() {
-        return getComments() + getBody();
+        return node instanceof SymqleNode
+                ? ((SymqleNode) node).getImage()
+                : getComments() + getBody();
     }
 
     /**
@@ -131,8 +149,18 @@ public class SyntaxTree {
      * @return text of {@code this}. Empty string for non-terminals with no text and no children.
      */
     public final String getBody() {
-        final Token first = node.jjtGetFirstToken();
-        final Token last = node.jjtGetLastToken();
+        return node instanceof SymqleNode
+                ? ((SymqleNode) node).getBody()
+                : collectBody(node.jjtGetFirstToken(), node.jjtGetLastToken());
+    }
+
+    /**
+     * Collects text of a token range from token images.
+     * @param first first token
+     * @param last last token
+     * @return same as {@link #getBody()}
+     */
+    static String collectBody(final Token first, final Token last) {
         if (last != null && last.next == first) {
             return "";
         }
@@ -176,10 +204,7 @@ public class SyntaxTree {
      * @return list of found nodes
      */
     public final List<SyntaxTree> find(final String path) {
-        final List<String> nameList = path == null || path.equals("")
-                ? Collections.<String>emptyList()
-                : Arrays.asList(path.split("\\."));
-        return find(nameList);
+        return SyntaxPath.compile(path).find(this);
     }
 
     /**
@@ -201,24 +226,12 @@ public class SyntaxTree {
         return result;
     }
 
-    private List<SyntaxTree> find(final List<String> nameList) {
-        if (nameList.isEmpty()) {
-            return Collections.singletonList(this);
-        } else {
-            final List<SyntaxTree> result = new ArrayList<SyntaxTree>();
-            final String firstName = nameList.get(0);
-            final List<String> otherNames = nameList.subList(1, nameList.size());
-            if (firstName.equals("^")) {
-                return getParent() == null ? Collections.<SyntaxTree>emptyList() : getParent().find(otherNames);
-            } else {
-                for (SyntaxTree child: getChildren()) {
-                    if (child.getType().equals(firstName)) {
-                        result.addAll(child.find(otherNames));
-                    }
-                }
-            }
-            return result;
-        }
+    /**
+     * Underlying node.
+     * @return the node
+     */
+    final SimpleNode getNode() {
+        return node;
     }
 
     /**
@@ -20,7 +20,9 @@ import org.symqle.model.*;
 import org.symqle.util.Log;
 import org.symqle.util.Utils;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import static org.symqle.util.Utils.LINE_BREAK;
@@ -54,8 +56,9 @@ public class ClassCompletionProcessor extends ModelProcessor {
         javadocBuilder.append(" * Sql building block.").append(LINE_BREAK);
         javadocBuilder.append(" * Subclasses must implement:").append(LINE_BREAK);
         javadocBuilder.append(" *<ul>").append(LINE_BREAK);
-        final Set<String> abstractMethodsSignatures = new HashSet<String>();
-        final Set<MethodDefinition> abstractMethods = new HashSet<MethodDefinition>();
+        final Set<MethodSignature> abstractMethodsSignatures = new HashSet<MethodSignature>();
+        // insertion order: MethodDefinition has identity hash, which differs from run to run
+        final Set<MethodDefinition> abstractMethods = new LinkedHashSet<MethodDefinition>();
         for (final MethodDefinition method: classDefinition.getAllMethods(model)) {
             if (method.getOtherModifiers().contains("volatile") && method.getOtherModifiers().contains("abstract")) {
                 method.declareAbstract("public");
@@ -69,7 +72,7 @@ public class ClassCompletionProcessor extends ModelProcessor {
                     }
                 }));
                 javadocBuilder.append("}</li>").append(LINE_BREAK);
-                abstractMethodsSignatures.add(method.signature());
+                abstractMethodsSignatures.add(method.getSignature());
                 abstractMethods.add(method);
             }
         }
@@ -95,9 +98,9 @@ public class ClassCompletionProcessor extends ModelProcessor {
                 Log.debug("Trying to adapt to " + classDefinition.getName() + " " + ancestor.getSimpleName());
                 final AbstractTypeDefinition ancestorClass = model.getAbstractType(ancestor.getSimpleName());
                 if (ancestorClass.getClass().equals(InterfaceDefinition.class)) {
-                    final Set<String> ancestorMethodsSignatures = new HashSet<String>();
+                    final Set<MethodSignature> ancestorMethodsSignatures = new HashSet<MethodSignature>();
                     for (MethodDefinition method: ancestorClass.getAllMethods(model)) {
-                        ancestorMethodsSignatures.add(method.signature());
+                        ancestorMethodsSignatures.add(method.getSignature());
                     }
                     if (ancestorMethodsSignatures.containsAll(abstractMethodsSignatures)) {
                         // can implement by delegation
@@ -127,16 +130,14 @@ public class ClassCompletionProcessor extends ModelProcessor {
                         }
                         adaptBuilder.append("     * @return new instance of AbstractFactor").append(LINE_BREAK)
                                 .append("     */").append(LINE_BREAK);
-                        adaptBuilder.append("    public static ")
-                                .append(typeParameters)
-                                .append(" ")
-                                .append(classDefinition.getType())
-                                .append(" adapt(final ")
-                                .append(ancestor).append(" adaptee) {").append(LINE_BREAK)
+                        adaptBuilder.append("    ");
+                        final String adaptComment = adaptBuilder.toString();
+                        final StringBuilder bodyBuilder = new StringBuilder();
+                        bodyBuilder.append(" {").append(LINE_BREAK)
                                 .append("        return new ").append(classDefinition.getType()).append("() {")
                                 .append(LINE_BREAK);
                         for (MethodDefinition method: abstractMethods) {
-                            adaptBuilder.append("            public ").append(method.getTypeParameters()).append(" ")
+                            bodyBuilder.append("            public ").append(method.getTypeParameters()).append(" ")
                                     .append(method.getResultType()).append(" ").append(method.getName()).append("(")
                                     .append(Utils.format(method.getFormalParameters(), "", ", ", "",
                                             new F<FormalParameter, String, RuntimeException>() {
@@ -154,13 +155,22 @@ public class ClassCompletionProcessor extends ModelProcessor {
                                     .append(";").append(LINE_BREAK)
                                     .append("            }").append(LINE_BREAK);
                         }
-                        adaptBuilder.append("        };").append(LINE_BREAK)
+                        bodyBuilder.append("        };").append(LINE_BREAK)
                                 .append("    }");
                         final MethodDefinition adaptMethod =
-                                MethodDefinition.parse(adaptBuilder.toString(), classDefinition);
+                                MethodDefinition.builder(classDefinition, "adapt")
+                                    .comment(adaptComment)
+                                    .accessModifier("public")
+                                    .modifiers("static")
+                                    .typeParameters(typeParameters)
+                                    .resultType(classDefinition.getType())
+                                    .parameter(new FormalParameter(ancestor, "adaptee",
+                                            Collections.singletonList("final"), false))
+                                    .body(bodyBuilder.toString())
+                                    .build();
                         classDefinition.addMethod(adaptMethod);
                     } else {
-                        Set<String> remaining = new HashSet<String>(abstractMethodsSignatures);
+                        Set<MethodSignature> remaining = new HashSet<MethodSignature>(abstractMethodsSignatures);
                         remaining.removeAll(ancestorMethodsSignatures);
                         Log.debug(classDefinition.getName() + ": cannot adapt("
                                 + ancestor.getSimpleName() + "), cannot delegate " + remaining);
@@ -57,22 +57,15 @@ public class ClassEnhancer extends ModelProcessor {
     private void enhanceClass(final ClassDefinition classDef,
                               final Model model,
                               final Map<MethodDefinition, String> commentReplacements) throws ModelException {
-        Map<String, List<MethodDefinition>> ambiguousMethodsByReducedSignature = new HashMap<>();
-        for (MethodDefinition method: model.getExplicitSymqleMethods()) {
-            if (!model.isUnambiguous(method)
-                    && !method.getAccessModifier().equals("private")
-                    && !method.getAccessModifier().equals("protected")) {
-                final String key = model.reducedSignature(method);
-                List<MethodDefinition> list = ambiguousMethodsByReducedSignature.get(key);
-                if (list == null) {
-                    list = new ArrayList<MethodDefinition>();
-                    ambiguousMethodsByReducedSignature.put(key, list);
-                }
-                list.add(method);
-            }
+        final Set<String> ancestorNames = new HashSet<String>();
+        for (Type ancestor: classDef.getAllAncestors(model)) {
+            ancestorNames.add(ancestor.getSimpleName());
         }
-
-        for (List<MethodDefinition> list: ambiguousMethodsByReducedSignature.values()) {
+        for (List<MethodDefinition> list: model.getAmbiguousSymqleMethodGroups()) {
+            if (!anyFirstParameterIn(list, ancestorNames)) {
+                // none of the methods can be applied to this class
+                continue;
+            }
             List<MethodDefinition> acceptableMethods = new ArrayList<MethodDefinition>();
             for (MethodDefinition method : list) {
                 if (getMapping(classDef, method, model) != null) {
@@ -133,6 +126,7 @@ public class ClassEnhancer extends ModelProcessor {
                 final MethodDefinition myMethod = createMyMethod(classDef, accepted, model);
                 classDef.addMethod(myMethod);
                 // comment moved to class and is scheduled for remove from Symqle
+                accepted.getOwner().addOrigin(classDef);
                 commentReplacements.put(accepted,  "    /**" + Utils.LINE_BREAK
                         + "     *  see e.g. {@link " + classDef.getName() + "#" + myMethod.signature() + "}"
                         + Utils.LINE_BREAK
@@ -149,6 +143,17 @@ public class ClassEnhancer extends ModelProcessor {
 
     }
 
+    private boolean anyFirstParameterIn(final List<MethodDefinition> methods, final Set<String> typeNames) {
+        for (MethodDefinition method : methods) {
+            final List<FormalParameter> formalParameters = method.getFormalParameters();
+            if (!formalParameters.isEmpty()
+                    && typeNames.contains(formalParameters.get(0).getType().getSimpleName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private int richness(final MethodDefinition method, final Model model) throws ModelException {
         final Type resultType = method.getResultType();
         final AbstractTypeDefinition abstractType;
@@ -211,7 +216,7 @@ public class ClassEnhancer extends ModelProcessor {
             if (mapping.get(typeParameterName) == null) {
                 final String newParameterName = findFreeName(mapping, typeParameterName);
                 TypeParameter renamedTypeParameter = typeParameter.rename(newParameterName);
-                mapping.put(typeParameterName, new TypeArgument(false, null, new Type(newParameterName)));
+                mapping.put(typeParameterName, TypeArgument.of(false, null, Type.of(newParameterName)));
                 myTypeParameterList.add(renamedTypeParameter);
             }
         }
@@ -226,34 +231,24 @@ public class ClassEnhancer extends ModelProcessor {
         myModifiers.remove("abstract");
         myModifiers.remove("static");
         myModifiers.add("final");
-        final StringBuilder builder = new StringBuilder();
-        builder.append(method.getComment());
-        builder.append("    ");
         // always public method!
-        builder.append("public")
-                .append(" ")
-                .append(Utils.format(myModifiers, "", " ", " "))
-                .append(myTypeParameters)
-                .append(method.getResultType().replaceParams(mapping))
-                .append(" ")
-                .append(method.getName())
-                .append("(")
-                .append(Utils.format(myFormalParameters, "", ", ", ""))
-                .append(")")
-                .append(Utils.format(method.getThrownExceptions(), " throws ", ", ", ""))
-                .append(" {")
-                .append(Utils.LINE_BREAK)
-                .append("        return Symqle.")
-                .append(method.getName()).append("")
-                // always cast explicitly to reqiured interface for potentially ambiguous methods
-                // the cast may be redundant sometimes...
-                .append("((").append(method.getFormalParameters().get(0).getType().replaceParams(mapping)).append(") ")
-                .append("this").append(Utils.format(myFormalParameters, ", ", ", ", "", FormalParameter.NAME))
-                .append(");").append(Utils.LINE_BREAK).append("    }");
-        final String body = builder.toString();
-        final MethodDefinition myMethod = MethodDefinition.parse(body, classDef);
-        myMethod.setSourceRef(method.getSourceRef());
-        return myMethod;
+        return MethodDefinition.builder(classDef, method.getName())
+                .comment(method.getComment() + "    ")
+                .accessModifier("public")
+                .modifiers(myModifiers)
+                .typeParameters(myTypeParameters)
+                .resultType(method.getResultType().replaceParams(mapping))
+                .parameters(myFormalParameters)
+                .throwing(method.getThrownExceptions())
+                .body(" {" + Utils.LINE_BREAK
+                        + "        return Symqle." + method.getName()
+                        // always cast explicitly to reqiured interface for potentially ambiguous methods
+                        // the cast may be redundant sometimes...
+                        + "((" + method.getFormalParameters().get(0).getType().replaceParams(mapping) + ") "
+                        + "this" + Utils.format(myFormalParameters, ", ", ", ", "", FormalParameter.NAME)
+                        + ");" + Utils.LINE_BREAK + "    }")
+                .sourceRef(method.getSourceRef())
+                .build();
     }
 
 
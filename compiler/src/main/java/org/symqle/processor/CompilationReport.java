@@ -0,0 +1,316 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.processor;
+
+import org.symqle.util.CompilerEvent;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timings of compilation phases and statistics of the resulting model.
+ * Each phase is measured in the thread, which starts it: wall clock time, CPU time
+ * and bytes allocated by the thread. If a phase runs tasks in worker threads (parser or writer pools),
+ * CPU time and allocated bytes of the tasks wrapped by {@link Measurement#measured(Callable)} are added.
+ * CPU time and allocated bytes are -1 if the JVM does not support the measurement.
+ * @author Alexander Izyurov
+ */
+public final class CompilationReport {
+
+    private final List<Phase> phases = new ArrayList<Phase>();
+    private final Map<String, Long> statistics = new LinkedHashMap<String, Long>();
+
+    /**
+     * Starts measuring of a phase. The phase is added to this report when
+     * {@link Measurement#finish()} is called; at the same time a {@link CompilerEvent} is committed for it.
+     * @param phaseName name of the phase
+     * @return running measurement
+     */
+    public Measurement start(final String phaseName) {
+        return new Measurement(phaseName);
+    }
+
+    /**
+     * Records a statistic value. A value with the same name is replaced.
+     * @param name statistic name, e.g. "classes"
+     * @param value the value
+     */
+    public synchronized void addStatistic(final String name, final long value) {
+        statistics.put(name, value);
+    }
+
+    /**
+     * Measured phases in the order they have finished.
+     * @return immutable list of phases
+     */
+    public synchronized List<Phase> getPhases() {
+        return Collections.unmodifiableList(new ArrayList<Phase>(phases));
+    }
+
+    /**
+     * Recorded statistics in the order they were added.
+     * @return immutable map: statistic name to value
+     */
+    public synchronized Map<String, Long> getStatistics() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, Long>(statistics));
+    }
+
+    /**
+     * Phase by name.
+     * @param phaseName name of the phase
+     * @return the phase; null if not measured
+     */
+    public synchronized Phase getPhase(final String phaseName) {
+        for (Phase phase : phases) {
+            if (phase.getName().equals(phaseName)) {
+                return phase;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes this report as JSON object with "phases" array and "statistics" object.
+     * @param writer where to write
+     * @throws IOException writer failed
+     */
+    public void writeJson(final Writer writer) throws IOException {
+        final List<Phase> phaseList = getPhases();
+        final Map<String, Long> statisticMap = getStatistics();
+        writer.write("{\n  \"phases\": [");
+        for (int i = 0; i < phaseList.size(); i++) {
+            final Phase phase = phaseList.get(i);
+            writer.write(i == 0 ? "\n" : ",\n");
+            writer.write("    {\"name\": ");
+            writeString(writer, phase.getName());
+            writer.write(", \"wallNanos\": " + phase.getWallNanos());
+            writer.write(", \"cpuNanos\": " + phase.getCpuNanos());
+            writer.write(", \"allocatedBytes\": " + phase.getAllocatedBytes() + "}");
+        }
+        writer.write(phaseList.isEmpty() ? "],\n" : "\n  ],\n");
+        writer.write("  \"statistics\": {");
+        boolean first = true;
+        for (Map.Entry<String, Long> entry : statisticMap.entrySet()) {
+            writer.write(first ? "\n    " : ",\n    ");
+            first = false;
+            writeString(writer, entry.getKey());
+            writer.write(": " + entry.getValue());
+        }
+        writer.write(first ? "}\n}\n" : "\n  }\n}\n");
+    }
+
+    /**
+     * This report as JSON.
+     * @return JSON text
+     * @see #writeJson(java.io.Writer)
+     */
+    public String toJson() {
+        final StringWriter writer = new StringWriter();
+        try {
+            writeJson(writer);
+        } catch (IOException e) {
+            // StringWriter does not throw
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+
+    private static void writeString(final Writer writer, final String s) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < ' ') {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+    private synchronized void add(final Phase phase) {
+        phases.add(phase);
+    }
+
+    /**
+     * Timing of one compilation phase. Immutable.
+     */
+    public static final class Phase {
+        private final String name;
+        private final long wallNanos;
+        private final long cpuNanos;
+        private final long allocatedBytes;
+
+        private Phase(final String name, final long wallNanos, final long cpuNanos, final long allocatedBytes) {
+            this.name = name;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        /**
+         * Phase name.
+         * @return name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Elapsed wall clock time.
+         * @return nanoseconds
+         */
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * CPU time of the starting thread and all measured tasks of the phase.
+         * @return nanoseconds; -1 if not supported
+         */
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        /**
+         * Bytes allocated by the starting thread and all measured tasks of the phase.
+         * @return bytes; -1 if not supported
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+    /**
+     * Running measurement of a phase. Should be finished in the thread, which has started it,
+     * after all its measured tasks have completed.
+     */
+    public final class Measurement {
+        private final String name;
+        private final Thread thread;
+        private final long startWall;
+        private final long startCpu;
+        private final long startAllocated;
+        private final CompilerEvent event;
+        // usage of tasks executed by other threads; -1 once any task could not be measured
+        private final AtomicLong taskCpu = new AtomicLong();
+        private final AtomicLong taskAllocated = new AtomicLong();
+
+        private Measurement(final String name) {
+            this.name = name;
+            this.thread = Thread.currentThread();
+            this.event = CompilerEvent.phase(name);
+            this.startCpu = currentThreadCpuTime();
+            this.startAllocated = currentThreadAllocatedBytes();
+            this.startWall = System.nanoTime();
+        }
+
+        /**
+         * Wraps a task of this phase, so that its CPU time and allocated bytes are added to the phase.
+         * Tasks executed by the thread, which has started the phase, are counted once.
+         * @param task the task
+         * @param <V> result type
+         * @return measured task
+         */
+        public <V> Callable<V> measured(final Callable<V> task) {
+            return new Callable<V>() {
+                @Override
+                public V call() throws Exception {
+                    if (Thread.currentThread() == thread) {
+                        return task.call();
+                    }
+                    final long cpu = currentThreadCpuTime();
+                    final long allocated = currentThreadAllocatedBytes();
+                    try {
+                        return task.call();
+                    } finally {
+                        addUsage(taskCpu, cpu, currentThreadCpuTime());
+                        addUsage(taskAllocated, allocated, currentThreadAllocatedBytes());
+                    }
+                }
+            };
+        }
+
+        /**
+         * Stops measurement and adds the phase to the report.
+         * @return the measured phase
+         */
+        public Phase finish() {
+            final long wall = System.nanoTime() - startWall;
+            final long cpu = currentThreadCpuTime();
+            final long allocated = currentThreadAllocatedBytes();
+            final Phase phase = new Phase(name, wall,
+                    total(startCpu, cpu, taskCpu.get()),
+                    total(startAllocated, allocated, taskAllocated.get()));
+            add(phase);
+            event.commit();
+            return phase;
+        }
+    }
+
+    private static void addUsage(final AtomicLong total, final long start, final long end) {
+        if (start < 0 || end < 0) {
+            total.set(-1);
+            return;
+        }
+        for (long current = total.get(); current >= 0; current = total.get()) {
+            if (total.compareAndSet(current, current + end - start)) {
+                return;
+            }
+        }
+    }
+
+    private static long total(final long start, final long end, final long tasks) {
+        return start < 0 || end < 0 || tasks < 0 ? -1 : end - start + tasks;
+    }
+
+    private static long currentThreadCpuTime() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean.isCurrentThreadCpuTimeSupported() && bean.isThreadCpuTimeEnabled()
+                ? bean.getCurrentThreadCpuTime()
+                : -1;
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
@@ -51,6 +51,12 @@ public class FinalizationProcessor extends ModelProcessor {
         Log.info("Classes: " + allClasses.size());
         Log.info("Class methods: " + classMethods);
         Log.info("Inheritance relations: " + inheritanceRelations);
+        final CompilationReport report = model.getReport();
+        report.addStatistic("interfaces", allInterfaces.size());
+        report.addStatistic("interfaceMethods", interfaceMethods);
+        report.addStatistic("classes", allClasses.size());
+        report.addStatistic("classMethods", classMethods);
+        report.addStatistic("inheritanceRelations", inheritanceRelations);
     }
 
     @Override
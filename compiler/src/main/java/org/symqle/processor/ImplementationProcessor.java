@@ -64,21 +64,19 @@ public class ImplementationProcessor extends ModelProcessor {
     }
 
     private MethodDefinition reimplementMethod(final MethodDefinition method, final AnonymousClass classDef) {
-        StringBuilder builder = new StringBuilder();
-        builder.append(method.getAccessModifier());
-        builder.append(Utils.format(method.getOtherModifiers(), " ", " ", " "));
-        builder.append(method.getTypeParameters()).append(" ");
-        builder.append(method.getResultType());
-        builder.append(" ").append(method.getName());
-        builder.append("(").append(Utils.format(method.getFormalParameters(), "", ", ", "")).append(")");
-        builder.append(" {").append(Utils.LINE_BREAK)
-                .append("        return new ").append(method.getResultType()).append("()")
-        .append(classDef.instanceBodyAsString()).append(";").append(Utils.LINE_BREAK)
-        .append("    }").append(Utils.LINE_BREAK);
-        final MethodDefinition reimplemented = MethodDefinition.parse(builder.toString(), method.getOwner());
-        reimplemented.setSourceRef(method.getSourceRef());
-        reimplemented.replaceComment(method.getComment());
-        return reimplemented;
+        return MethodDefinition.builder(method.getOwner(), method.getName())
+                .comment(method.getComment())
+                .accessModifier(method.getAccessModifier())
+                .modifiers(method.getOtherModifiers())
+                .typeParameters(method.getTypeParameters())
+                .resultType(method.getResultType())
+                .parameters(method.getFormalParameters())
+                .body(" {" + Utils.LINE_BREAK
+                        + "        return new " + method.getResultType() + "()"
+                        + classDef.instanceBodyAsString() + ";" + Utils.LINE_BREAK
+                        + "    }")
+                .sourceRef(method.getSourceRef())
+                .build();
     }
 
     private void implement(final AbstractTypeDefinition classDef, final Model model) throws ModelException {
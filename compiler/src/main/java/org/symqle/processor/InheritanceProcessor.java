@@ -77,7 +77,7 @@ public class InheritanceProcessor extends ModelProcessor {
                 if (!allAncestors.contains(implementedType)) {
                     classDef.addImplementedInterface(implementedType);
                     Log.debug(classDef.getName() + " now directly implements " + implementedType.getSimpleName());
-                    final Set<Type> newAncestors = classDef.getAllAncestors(model);
+                    final Set<Type> newAncestors = new HashSet<Type>(classDef.getAllAncestors(model));
                     newAncestors.removeAll(allAncestors);
                     unexplored.addAll(newAncestors);
                     for (Type newAncestor: newAncestors) {
@@ -103,20 +103,7 @@ public class InheritanceProcessor extends ModelProcessor {
      */
     public static Map<MethodDefinition, Type> findAvailableConversions(final Type type,
                                                                              final Model model) throws ModelException {
-        final Map<MethodDefinition, Type> map = new HashMap<MethodDefinition, Type>();
-        for (ImplicitConversion conversion : model.getConversions()) {
-            final Type fromType = conversion.getFrom();
-            if (fromType.getSimpleName().equals(type.getSimpleName())) {
-                final Map<String, TypeArgument> replacementMap =
-                        conversion.getTypeParameters().inferTypeArguments(fromType, type);
-                final Type resultType = conversion.getTo().replaceParams(replacementMap);
-                final Type argType = fromType.replaceParams(replacementMap);
-                if (argType.equals(type)) {
-                    map.put(conversion.getConversionMethod(), resultType);
-                }
-            }
-        }
-        return map;
+        return model.findAvailableConversions(type);
     }
 
     private void implementNewMethods(final ClassDefinition classDef,
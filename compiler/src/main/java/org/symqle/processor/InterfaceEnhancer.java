@@ -51,7 +51,7 @@ public class InterfaceEnhancer extends ModelProcessor {
 
     private void enhanceInterface(final InterfaceDefinition interfaceDefinition,
                                   final Model model) throws ModelException {
-        for (MethodDefinition method: model.getExplicitSymqleMethods()) {
+        for (MethodDefinition method: model.getExplicitSymqleMethods(interfaceDefinition.getName())) {
             if (!model.isUnambiguous(method)) {
                 continue;
             }
@@ -85,6 +85,7 @@ public class InterfaceEnhancer extends ModelProcessor {
                 // so types match
                 final MethodDefinition newMethod = createMyMethod(interfaceDefinition, method, mapping);
                 // remove comment from Symqle: moved to interface.
+                method.getOwner().addOrigin(interfaceDefinition);
                 method.replaceComment("    /**" + Utils.LINE_BREAK
                         + "     *  see {@link " + interfaceDefinition.getName() + "#" + newMethod.signature() + "}"
                         + Utils.LINE_BREAK + "     */" + Utils.LINE_BREAK);
@@ -116,21 +117,14 @@ public class InterfaceEnhancer extends ModelProcessor {
             final FormalParameter symqleFormalParameter = symqleFormalParameters.get(i);
             myFormalParameters.add(symqleFormalParameter.replaceParams(mapping));
         }
-        final StringBuilder builder = new StringBuilder();
-        builder.append(symqleMethod.getComment());
-        builder.append(myTypeParameters)
-                .append(symqleMethod.getResultType().replaceParams(mapping))
-                .append(" ")
-                .append(symqleMethod.getName())
-                .append("(")
-                .append(Utils.format(myFormalParameters, "", ", ", ""))
-                .append(")")
-                .append(Utils.format(symqleMethod.getThrownExceptions(), " throws ", ", ", ""))
-                .append(";");
-        final String body = builder.toString();
-        final MethodDefinition method = MethodDefinition.parse(body, interfaceDefinition);
-        method.setSourceRef(symqleMethod.getSourceRef());
-        return method;
+        return MethodDefinition.builder(interfaceDefinition, symqleMethod.getName())
+                .comment(symqleMethod.getComment())
+                .typeParameters(myTypeParameters)
+                .resultType(symqleMethod.getResultType().replaceParams(mapping))
+                .parameters(myFormalParameters)
+                .throwing(symqleMethod.getThrownExceptions())
+                .sourceRef(symqleMethod.getSourceRef())
+                .build();
     }
 
 
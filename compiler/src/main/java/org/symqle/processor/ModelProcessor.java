@@ -34,7 +34,9 @@ public abstract class ModelProcessor extends ChainedProcessor {
         try {
             predecessor().process(trees, model);
             Log.info("STARTING " + getClass().getSimpleName());
+            final CompilationReport.Measurement measurement = model.getReport().start(getClass().getSimpleName());
             process(model);
+            measurement.finish();
             Log.info("FINISHED " + getClass().getSimpleName());
         } catch (ModelException e) {
             throw new GrammarException(e, trees.get(0));
@@ -20,7 +20,9 @@ import org.symqle.model.*;
 import org.symqle.parser.SyntaxTree;
 import org.symqle.util.Utils;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -69,7 +71,7 @@ public class ProductionProcessor extends SyntaxTreeProcessor {
             } catch (ModelException e) {
                 throw new GrammarException(e, productionRuleNode);
             }
-            model.addRule(productionRule.getTarget(), productionRule.getShortRule());
+            model.addRule(productionRule.getTarget(), productionRule.getShortRule(), productionRule.getSourceRef());
 
             for (SyntaxTree productionImplNode: productionChoice.find("ProductionImplementation")) {
                 final List<String> declarationImports =
@@ -97,23 +99,7 @@ public class ProductionProcessor extends SyntaxTreeProcessor {
                     final Type formalReturnType = productionImpl.isImplicit()
                             ? implementationType
                             : productionImpl.getReturnType();
-                    final String staticMethodDeclaration =
-                            productionImpl.getComment()
-                                    + productionImpl.getAccessModifier()
-                                    + " " + "static "
-                                    + productionImpl.getTypeParameters()
-                                    + " " + formalReturnType + " "
-                                    + productionImpl.getName()
-                                    + "(" + Utils.format(productionImpl.getFormalParameters(), "", ", ", "",
-                                        new F<FormalParameter, String, RuntimeException>() {
-                                            @Override
-                                            public String apply(final FormalParameter formalParameter) {
-                                                return "final " + formalParameter.toString();
-                                            }
-                                        })
-                                    + ")";
-
-                    final AnonymousClass anonymousClass = new AnonymousClass(productionImplNode, implementationType);
+                    final AnonymousClass anonymousClass = new AnonymousClass(productionImplNode, implementationType, model);
                         // create implementing method for SymqleGeneric class (uses the anonymous class and the rule)
                         // first implement all non-implemented methods in the class
                         final Collection<MethodDefinition> anonymousClassAllMethods =
@@ -139,12 +125,13 @@ public class ProductionProcessor extends SyntaxTreeProcessor {
                                                 methodName.substring(getterPrefixLength, getterPrefixLength + 1)
                                                         .toLowerCase()
                                                 + methodName.substring(getterPrefixLength + 1, methodName.length());
-                                        String fieldDeclarationSource = "        private final "
-                                                + method.getResultType() + " " + propertyName + " = "
-                                                + callLeftmostArg(model, productionImpl, method);
+                                        final FieldDeclaration field = new FieldDeclaration("        ",
+                                                "private", Collections.singleton("final"),
+                                                method.getResultType(),
+                                                Collections.singletonList(new VariableDeclarator(propertyName,
+                                                        callLeftmostArg(model, productionImpl, method))));
                                         delegationCall = propertyGetter(propertyName);
-                                        anonymousClass.addFieldDeclaration(
-                                                FieldDeclaration.parse(fieldDeclarationSource));
+                                        anonymousClass.addFieldDeclaration(field);
                                     } else {
                                         delegationCall = delegateToLeftmostArg(model, productionImpl, method);
                                     }
@@ -152,13 +139,24 @@ public class ProductionProcessor extends SyntaxTreeProcessor {
                                 method.implement("public", delegationCall, true, false);
                             }
                         }
-                        final MethodDefinition methodToImplement = MethodDefinition.parse(staticMethodDeclaration
-                                + " {" +  Utils.LINE_BREAK
-                                + "        return new " + implementationType + "()"
-                                + anonymousClass.instanceBodyAsString() + ";" + Utils.LINE_BREAK
-                                + "    }" + Utils.LINE_BREAK,
-                                symqle);
-                        methodToImplement.setSourceRef(productionImpl.getSourceRef());
+                        final List<FormalParameter> finalParameters = new ArrayList<FormalParameter>();
+                        for (FormalParameter formalParameter: productionImpl.getFormalParameters()) {
+                            finalParameters.add(formalParameter.makeFinal(true));
+                        }
+                        final MethodDefinition methodToImplement =
+                                MethodDefinition.builder(symqle, productionImpl.getName())
+                                    .comment(productionImpl.getComment())
+                                    .accessModifier(productionImpl.getAccessModifier())
+                                    .modifiers("static")
+                                    .typeParameters(productionImpl.getTypeParameters())
+                                    .resultType(formalReturnType)
+                                    .parameters(finalParameters)
+                                    .body(" {" +  Utils.LINE_BREAK
+                                        + "        return new " + implementationType + "()"
+                                        + anonymousClass.instanceBodyAsString() + ";" + Utils.LINE_BREAK
+                                        + "    }")
+                                    .sourceRef(productionImpl.getSourceRef())
+                                    .build();
                         if (productionImpl.isImplicit()) {
                             model.addConversion(new ImplicitConversion(productionImpl.getTypeParameters(),
                                     productionImpl.getFormalParameters().get(0).getType(),
@@ -195,6 +193,7 @@ public class ProductionProcessor extends SyntaxTreeProcessor {
             bodyBuilder.append("return ");
         }
         bodyBuilder.append(callLeftmostArg(model, productionImpl, method));
+        bodyBuilder.append(";").append(Utils.LINE_BREAK);
         bodyBuilder.append(Utils.LINE_BREAK);
         bodyBuilder.append("            }");
         return bodyBuilder.toString();
@@ -221,10 +220,7 @@ public class ProductionProcessor extends SyntaxTreeProcessor {
             if (!delegate.matches(method)) {
                 throw new ModelException("Cannot implement by delegation " + method.declaration());
             }
-            final StringBuilder bodyBuilder = new StringBuilder();
-            bodyBuilder.append(delegate.delegationInvocation(formalParameter.getName()))
-                    .append(";").append(Utils.LINE_BREAK);
-            return bodyBuilder.toString();
+            return delegate.delegationInvocation(formalParameter.getName());
         } else {
             throw new ModelException("Cannot implement " + method.getName());
         }
@@ -304,6 +300,11 @@ public class ProductionProcessor extends SyntaxTreeProcessor {
 
     private MethodDefinition createDialectMethod(final ProductionRule rule,
                                                  final InterfaceDefinition dialect) {
-        return MethodDefinition.parseAbstract(rule.asAbstractMethodDeclaration() + ";", dialect);
+        return MethodDefinition.builder(dialect, rule.getName())
+                .declarationRef(rule.getSourceRef())
+                .comment(rule.generatedComment())
+                .resultType(Type.of("SqlBuilder"))
+                .parameters(rule.getFormalParameters())
+                .build();
     }
 }
@@ -0,0 +1,110 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.processor;
+
+import org.symqle.parser.SyntaxTree;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Syntax trees of previously parsed sources, which can be reused by subsequent compilations
+ * while source content does not change. Syntax trees are not modified by the compiler,
+ * so one tree may be shared by several compilations, including concurrent ones.
+ * Total size of cached sources is limited; least recently used sources are dropped first.
+ * @author Alexander Izyurov
+ */
+public final class SourceCache {
+
+    /**
+     * Default limit of total size of cached sources.
+     */
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    private final long maxBytes;
+    // access order: least recently used first
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long bytes;
+
+    /**
+     * Constructs a cache with {@link #DEFAULT_MAX_BYTES} limit.
+     */
+    public SourceCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Constructs a cache with given limit.
+     * @param maxBytes maximal total size of cached sources; syntax trees take much more memory than sources
+     */
+    public SourceCache(final long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Syntax tree of a source, if the source was parsed with the same content.
+     * @param source sdl file
+     * @param contentHash hash of current content
+     * @return the tree; null if not found or content was different
+     */
+    public synchronized SyntaxTree get(final File source, final String contentHash) {
+        final Entry entry = entries.get(source.getAbsolutePath());
+        return entry != null && entry.contentHash.equals(contentHash) ? entry.syntaxTree : null;
+    }
+
+    /**
+     * Remembers syntax tree of a source, replacing any previous one.
+     * Least recently used sources are dropped if the limit is exceeded.
+     * @param source sdl file
+     * @param contentHash hash of content, from which the tree was parsed
+     * @param length content length in bytes
+     * @param syntaxTree the tree
+     */
+    public synchronized void put(final File source, final String contentHash, final long length,
+                                 final SyntaxTree syntaxTree) {
+        final Entry previous = entries.put(source.getAbsolutePath(), new Entry(contentHash, length, syntaxTree));
+        bytes += length - (previous == null ? 0 : previous.length);
+        final Iterator<Entry> iterator = entries.values().iterator();
+        // the entry just added is the last one, so it is kept even if it exceeds the limit alone
+        while (bytes > maxBytes && entries.size() > 1) {
+            bytes -= iterator.next().length;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Number of cached sources.
+     * @return the number
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        private final String contentHash;
+        private final long length;
+        private final SyntaxTree syntaxTree;
+
+        private Entry(final String contentHash, final long length, final SyntaxTree syntaxTree) {
+            this.contentHash = contentHash;
+            this.length = length;
+            this.syntaxTree = syntaxTree;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.processor;
+
+import org.symqle.model.ModelException;
+import org.symqle.parser.ParseException;
+import org.symqle.util.Log;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watch mode: compiles all sdl files of a directory and recompiles them incrementally whenever they change.
+ * Bursts of file system events (like an editor saving several files) are merged into one compilation.
+ * Syntax trees of unchanged sources are kept in memory between compilations.
+ * Timing of each compilation is logged.
+ * <p>
+ * Usage: {@code java -cp symqle-compiler.jar org.symqle.processor.SourceWatcher
+ * sourceDirectory outputDirectory testOutputDirectory}
+ * @author Alexander Izyurov
+ */
+public final class SourceWatcher {
+
+    /**
+     * Default quiet period after the last change before compilation starts.
+     */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+
+    private final File sourceDirectory;
+    private final File outputDirectory;
+    private final File testOutputDirectory;
+    private final File dependencyFile;
+    private final long debounceMillis;
+    private final SymqleCompiler compiler;
+    private volatile int cycles;
+
+    /**
+     * Constructs a watcher.
+     * @param sourceDirectory directory with sdl files
+     * @param outputDirectory output directory for production code
+     * @param testOutputDirectory output directory for test code
+     * @param debounceMillis quiet period after the last change before compilation starts
+     */
+    public SourceWatcher(final File sourceDirectory,
+                         final File outputDirectory,
+                         final File testOutputDirectory,
+                         final long debounceMillis) {
+        this.sourceDirectory = sourceDirectory;
+        this.outputDirectory = outputDirectory;
+        this.testOutputDirectory = testOutputDirectory;
+        this.dependencyFile = new File(outputDirectory, "symqle.deps");
+        this.debounceMillis = debounceMillis;
+        final int threads = Runtime.getRuntime().availableProcessors();
+        this.compiler = new SymqleCompiler(threads, threads, new SourceCache());
+    }
+
+    /**
+     * Compiles, then waits for changes and recompiles until the thread is interrupted.
+     * Compilation errors are logged and do not stop watching.
+     * @throws IOException failure to watch the source directory
+     * @throws InterruptedException the thread was interrupted; this is the normal way to stop watching
+     */
+    public void watch() throws IOException, InterruptedException {
+        final WatchService watchService = FileSystems.getDefault().newWatchService();
+        try {
+            sourceDirectory.toPath().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            // changes made during compilation are seen by the next awaitChanges
+            compileQuietly();
+            while (true) {
+                awaitChanges(watchService);
+                compileQuietly();
+            }
+        } finally {
+            watchService.close();
+        }
+    }
+
+    /**
+     * Number of compilations performed by {@link #watch()}, including failed ones.
+     * @return the number
+     */
+    public int getCycles() {
+        return cycles;
+    }
+
+    /**
+     * Compiles all sources of the directory incrementally.
+     * @return compilation report
+     * @throws IOException error reading/writing
+     * @throws GrammarException semantic error
+     * @throws ParseException syntax error
+     * @throws ModelException semantic error not bound to any specific source location
+     */
+    public CompilationReport compile() throws IOException, GrammarException, ParseException, ModelException {
+        final File[] sources = sourceDirectory.listFiles(SDL_FILES);
+        if (sources == null) {
+            throw new IOException("Cannot list " + sourceDirectory);
+        }
+        Arrays.sort(sources);
+        return compiler.doAll(sources, outputDirectory, testOutputDirectory, dependencyFile);
+    }
+
+    private void compileQuietly() {
+        final long start = System.nanoTime();
+        try {
+            final Map<String, Long> statistics = compile().getStatistics();
+            Log.info(String.format("Compiled in %d ms: %d sources (%d reused), %d files written, %d deleted",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    statistic(statistics, "sources"),
+                    statistic(statistics, "sourcesReused"),
+                    statistic(statistics, "CoreGenerator.filesWritten")
+                            + statistic(statistics, "TestSetGenerator.filesWritten"),
+                    statistic(statistics, "filesDeleted")));
+        } catch (IOException | GrammarException | ParseException | ModelException e) {
+            Log.info(String.format("Compilation failed in %d ms: %s",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), e.getMessage()));
+        } catch (RuntimeException e) {
+            // internal compiler error; sources may be fixed to work around it, so watching continues
+            Log.info(String.format("Compilation failed in %d ms: %s%s",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), e,
+                    e.getCause() == null ? "" : " caused by " + e.getCause()));
+        } finally {
+            cycles++;
+        }
+    }
+
+    private static long statistic(final Map<String, Long> statistics, final String name) {
+        final Long value = statistics.get(name);
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * Waits for a change of an sdl file, then waits until no events come during debounce period.
+     */
+    private void awaitChanges(final WatchService watchService) throws InterruptedException {
+        boolean changed = false;
+        while (!changed) {
+            changed = isRelevant(watchService.take());
+        }
+        for (WatchKey key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+             key != null;
+             key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) {
+            isRelevant(key);
+        }
+    }
+
+    private static boolean isRelevant(final WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                relevant = true;
+            } else {
+                final Path path = (Path) event.context();
+                relevant |= path.getFileName().toString().endsWith(".sdl");
+            }
+        }
+        key.reset();
+        return relevant;
+    }
+
+    private static final FilenameFilter SDL_FILES = new FilenameFilter() {
+        @Override
+        public boolean accept(final File dir, final String name) {
+            return name.endsWith(".sdl");
+        }
+    };
+
+    /**
+     * Watches a directory until the process is terminated.
+     * @param args source directory, output directory, test output directory
+     * @throws IOException failure to watch the source directory
+     * @throws InterruptedException the thread was interrupted
+     */
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        if (args.length != 3) {
+            System.err.println("Usage: SourceWatcher sourceDirectory outputDirectory testOutputDirectory");
+            System.exit(1);
+        }
+        Log.info("Watching " + args[0]);
+        new SourceWatcher(new File(args[0]), new File(args[1]), new File(args[2]), DEFAULT_DEBOUNCE_MILLIS).watch();
+    }
+}
@@ -16,22 +16,51 @@
 
 package org.symqle.processor;
 
+import org.symqle.generator.ClassFileCompiler;
 import org.symqle.generator.CoreGenerator;
+import org.symqle.generator.DependencyGraph;
+import org.symqle.generator.GeneratedSources;
+import org.symqle.generator.JavacException;
+import org.symqle.generator.OutputManifest;
+import org.symqle.generator.RenderedSource;
 import org.symqle.generator.TestSetGenerator;
+import org.symqle.generator.WriterGenerator;
+import org.symqle.model.F;
 import org.symqle.model.Model;
 import org.symqle.model.ModelException;
 import org.symqle.parser.ParseException;
 import org.symqle.parser.SymqleParser;
 import org.symqle.parser.SyntaxTree;
+import org.symqle.util.CompilerEvent;
+import org.symqle.util.ContentHash;
 import org.symqle.util.Log;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.Reader;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.security.CodeSource;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Entry point for compiler plugin. Parses all sources and generates all code.
@@ -56,44 +85,563 @@ public class SymqleCompiler {
        FinalizationProcessor
      */
 
+    /**
+     * Package of generated production code.
+     */
+    public static final String CORE_PACKAGE = "org.symqle.sql";
+    /**
+     * Package of generated test interfaces.
+     */
+    public static final String TEST_SET_PACKAGE = "org.symqle.testset";
+    /**
+     * Version of this compiler; "null" if unknown.
+     */
+    public static final String COMPILER_VERSION =
+            String.valueOf(SymqleCompiler.class.getPackage().getImplementationVersion());
+
+    private static final String MAIN = "main";
+    private static final String TEST = "test";
+
+    private static String compilerBuild;
+
+    private final int parserThreads;
+    private final int writerThreads;
+    private final SourceCache sourceCache;
+    private final boolean fullParsing;
+
+    /**
+     * Constructs a compiler, which parses sources and writes generated files
+     * using one thread per available processor.
+     */
+    public SymqleCompiler() {
+        this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a compiler with given number of parser threads, which writes generated files sequentially.
+     * @param parserThreads maximal number of sources parsed simultaneously; 1 means sequential parsing
+     */
+    public SymqleCompiler(final int parserThreads) {
+        this(parserThreads, 1);
+    }
+
+    /**
+     * Constructs a compiler with given number of parser and writer threads.
+     * If more than one writer thread is allowed, core and test set generators run concurrently.
+     * @param parserThreads maximal number of sources parsed simultaneously; 1 means sequential parsing
+     * @param writerThreads maximal number of files rendered and written simultaneously;
+     * 1 means sequential generation in the calling thread
+     */
+    public SymqleCompiler(final int parserThreads, final int writerThreads) {
+        this(parserThreads, writerThreads, null);
+    }
+
+    /**
+     * Constructs a compiler with given number of parser and writer threads, which reuses syntax trees
+     * of unchanged sources. Useful for long-living compilers, which compile the same sources many times.
+     * @param parserThreads maximal number of sources parsed simultaneously; 1 means sequential parsing
+     * @param writerThreads maximal number of files rendered and written simultaneously;
+     * 1 means sequential generation in the calling thread
+     * @param sourceCache syntax trees of previously parsed sources; updated by compilations; null means no cache
+     */
+    public SymqleCompiler(final int parserThreads, final int writerThreads, final SourceCache sourceCache) {
+        this(parserThreads, writerThreads, sourceCache, false);
+    }
+
+    /**
+     * Constructs a compiler with given number of parser and writer threads and parsing mode.
+     * By default, method bodies and other blocks of implementation code are not parsed: they are copied
+     * to generated code as text. Full parsing additionally validates their syntax, but is slower and uses
+     * more memory; it is useful to check sdl sources before release.
+     * Syntax trees are not taken from the cache in full parsing mode, so that all sources are validated.
+     * @param parserThreads maximal number of sources parsed simultaneously; 1 means sequential parsing
+     * @param writerThreads maximal number of files rendered and written simultaneously;
+     * 1 means sequential generation in the calling thread
+     * @param sourceCache syntax trees of previously parsed sources; updated by compilations; null means no cache
+     * @param fullParsing true to parse and validate statements inside blocks
+     */
+    public SymqleCompiler(final int parserThreads, final int writerThreads, final SourceCache sourceCache,
+                          final boolean fullParsing) {
+        if (parserThreads < 1) {
+            throw new IllegalArgumentException("parserThreads should be positive, got " + parserThreads);
+        }
+        if (writerThreads < 1) {
+            throw new IllegalArgumentException("writerThreads should be positive, got " + writerThreads);
+        }
+        this.parserThreads = parserThreads;
+        this.writerThreads = writerThreads;
+        this.sourceCache = sourceCache;
+        this.fullParsing = fullParsing;
+    }
 
     /**
      * Parses all sources and generates all code.
+     * Files listed in {@link OutputManifest} by previous generation, which are not generated any more, are deleted.
      * @param sources source sdl files
      * @param outputDirectory output directory for production code
      * @param testOutputDirectory putput directory for test code
+     * @return timings of compilation phases and model statistics
      * @throws IOException error reading/writing
      * @throws GrammarException semantic error
      * @throws ParseException syntax error
      * @throws ModelException semantic error not bound to any specific source location
      */
-    public final void doAll(final File[] sources,
-                            final File outputDirectory,
-                            final File testOutputDirectory)
+    public final CompilationReport doAll(final File[] sources,
+                                         final File outputDirectory,
+                                         final File testOutputDirectory)
             throws IOException, GrammarException, ParseException, ModelException {
-        List<SyntaxTree> parsedSources = new ArrayList<SyntaxTree>(sources.length);
-        for (File source: sources) {
-            Reader reader = new InputStreamReader(new FileInputStream(source), "UTF-8");
+        return doAll(sources, outputDirectory, testOutputDirectory, null);
+    }
+
+    /**
+     * Parses all sources and generates code incrementally.
+     * The model is always built from all sources, but only generated types, which depend on
+     * changed sources (according to current or previous dependency graph), are written.
+     * Files, which are not generated any more, are deleted as in {@link #doAll(File[], File, File)}.
+     * If the dependency file is missing or was written by another compiler build, all types are written.
+     * @param sources source sdl files
+     * @param outputDirectory output directory for production code
+     * @param testOutputDirectory putput directory for test code
+     * @param dependencyFile dependency graph of previous compilation, replaced by the current one;
+     * null means no incremental compilation
+     * @return timings of compilation phases and model statistics
+     * @throws IOException error reading/writing
+     * @throws GrammarException semantic error
+     * @throws ParseException syntax error
+     * @throws ModelException semantic error not bound to any specific source location
+     */
+    public final CompilationReport doAll(final File[] sources,
+                                         final File outputDirectory,
+                                         final File testOutputDirectory,
+                                         final File dependencyFile)
+            throws IOException, GrammarException, ParseException, ModelException {
+        final CompilationReport report = new CompilationReport();
+        final CompilationReport.Measurement parsing = report.start("parse");
+        final AtomicInteger reusedSources = new AtomicInteger();
+        final List<SyntaxTree> parsedSources = parse(sources, reusedSources, parsing);
+        parsing.finish();
+        report.addStatistic("sources", sources.length);
+        if (sourceCache != null) {
+            report.addStatistic("sourcesReused", reusedSources.get());
+        }
+        final Model model = buildModel(parsedSources, report);
+        if (!outputDirectory.mkdirs() && !outputDirectory.isDirectory()) {
+            throw new IOException("Failed to create " + outputDirectory);
+        }
+        if (!testOutputDirectory.mkdirs() && !testOutputDirectory.isDirectory()) {
+            throw new IOException("Failed to create " + testOutputDirectory);
+        }
+        final CoreGenerator coreGenerator = new CoreGenerator(CORE_PACKAGE);
+        final TestSetGenerator testSetGenerator = new TestSetGenerator(TEST_SET_PACKAGE);
+        final Set<String> previousOutput = OutputManifest.load(outputDirectory);
+        final Set<String> previousTestOutput = OutputManifest.load(testOutputDirectory);
+        final ExecutorService writers = writerThreads > 1
+                ? Executors.newFixedThreadPool(writerThreads, WRITER_THREAD_FACTORY)
+                : null;
+        try {
+            final Executor executor = writers == null ? WriterGenerator.CALLER_RUNS : writers;
+            if (dependencyFile == null) {
+                generate(coreGenerator, null, outputDirectory, testSetGenerator, null, testOutputDirectory,
+                        model, executor);
+            } else {
+                generateIncrementally(sources, outputDirectory, testOutputDirectory, dependencyFile,
+                        model, coreGenerator, testSetGenerator, executor);
+            }
+        } finally {
+            if (writers != null) {
+                writers.shutdownNow();
+            }
+        }
+        report.addStatistic("filesDeleted", OutputManifest.prune(outputDirectory, previousOutput)
+                + OutputManifest.prune(testOutputDirectory, previousTestOutput));
+        return report;
+    }
+
+    /**
+     * Parses sources and generates all code in memory, without reading or writing any files.
+     * @param sources source name to source text; the name (like "Grammar.sdl") is used in messages
+     * and source references as file name
+     * @return generated production and test sources
+     * @throws GrammarException semantic error
+     * @throws ParseException syntax error
+     * @throws ModelException semantic error not bound to any specific source location
+     */
+    public final GeneratedSources compileStrings(final Map<String, String> sources)
+            throws GrammarException, ParseException, ModelException {
+        final Map<String, Reader> readers = new LinkedHashMap<String, Reader>();
+        for (Map.Entry<String, String> entry : sources.entrySet()) {
+            readers.put(entry.getKey(), new StringReader(entry.getValue()));
+        }
+        return compile(readers);
+    }
+
+    /**
+     * Parses sources and generates all code in memory, without reading or writing any files.
+     * Sources are parsed sequentially in iteration order; readers are not closed.
+     * @param sources source name to source reader; the name (like "Grammar.sdl") is used in messages
+     * and source references as file name
+     * @return generated production and test sources
+     * @throws GrammarException semantic error
+     * @throws ParseException syntax error
+     * @throws ModelException semantic error not bound to any specific source location
+     */
+    public final GeneratedSources compile(final Map<String, ? extends Reader> sources)
+            throws GrammarException, ParseException, ModelException {
+        final CompilationReport report = new CompilationReport();
+        final CompilationReport.Measurement parsing = report.start("parse");
+        final List<SyntaxTree> parsedSources = new ArrayList<SyntaxTree>(sources.size());
+        for (Map.Entry<String, ? extends Reader> entry : sources.entrySet()) {
             try {
-                SymqleParser parser = new SymqleParser(reader);
-                parsedSources.add(new SyntaxTree(parser.SymqleUnit(), source.getName()));
+                parsedSources.add(parseSource(entry.getValue(), entry.getKey(), -1));
             } catch (ParseException e) {
-                Log.info(e.getMessage() + " [" + source.getName() + "]");
+                Log.info(e.getMessage() + " [" + entry.getKey() + "]");
                 throw e;
+            }
+        }
+        parsing.finish();
+        report.addStatistic("sources", sources.size());
+        final Model model = buildModel(parsedSources, report);
+        final CoreGenerator coreGenerator = new CoreGenerator(CORE_PACKAGE);
+        final CompilationReport.Measurement coreGeneration = report.start(coreGenerator.getClass().getSimpleName());
+        final Map<String, RenderedSource> main = coreGenerator.render(model);
+        coreGeneration.finish();
+        final TestSetGenerator testSetGenerator = new TestSetGenerator(TEST_SET_PACKAGE);
+        final CompilationReport.Measurement testSetGeneration =
+                report.start(testSetGenerator.getClass().getSimpleName());
+        final Map<String, RenderedSource> test = testSetGenerator.render(model);
+        testSetGeneration.finish();
+        return new GeneratedSources(main, test, report);
+    }
+
+    /**
+     * Parses sources, generates code in memory and compiles it to class files with the system Java compiler.
+     * No java sources are written. Test classes are compiled against production classes.
+     * Compilation errors refer to sdl source locations of the elements, which have produced erroneous code.
+     * @param sources source sdl files
+     * @param classesDirectory output directory for production classes
+     * @param testClassesDirectory output directory for test classes
+     * @param classpath libraries, which generated code depends on
+     * @return timings of compilation phases and model statistics
+     * @throws IOException error reading/writing or no Java compiler available
+     * @throws GrammarException semantic error
+     * @throws ParseException syntax error
+     * @throws ModelException semantic error not bound to any specific source location
+     * @throws JavacException generated code does not compile
+     */
+    public final CompilationReport compileClasses(final File[] sources,
+                                                  final File classesDirectory,
+                                                  final File testClassesDirectory,
+                                                  final List<File> classpath)
+            throws IOException, GrammarException, ParseException, ModelException, JavacException {
+        final CompilationReport report = new CompilationReport();
+        final CompilationReport.Measurement parsing = report.start("parse");
+        final List<SyntaxTree> parsedSources = parse(sources, new AtomicInteger(), parsing);
+        parsing.finish();
+        report.addStatistic("sources", sources.length);
+        final Model model = buildModel(parsedSources, report);
+        final CompilationReport.Measurement rendering = report.start("render");
+        final Map<String, RenderedSource> main = new CoreGenerator(CORE_PACKAGE).render(model);
+        final Map<String, RenderedSource> test = new TestSetGenerator(TEST_SET_PACKAGE).render(model);
+        rendering.finish();
+        final CompilationReport.Measurement javac = report.start("javac");
+        new ClassFileCompiler(classpath, Collections.<String>emptyList()).compile(main, classesDirectory);
+        final List<File> testClasspath = new ArrayList<File>(classpath);
+        testClasspath.add(classesDirectory);
+        new ClassFileCompiler(testClasspath, Collections.<String>emptyList()).compile(test, testClassesDirectory);
+        javac.finish();
+        report.addStatistic("classesCompiled", main.size() + test.size());
+        return report;
+    }
+
+    /**
+     * Identity of the compiler build: version and hash of the compiler jar.
+     * Snapshot builds have the same version, so output of another build is recognized by the hash.
+     * If the compiler is not packaged (e.g. in tests), class files are hashed by names, sizes and timestamps.
+     * @return the identity
+     */
+    public static synchronized String compilerBuild() {
+        if (compilerBuild == null) {
+            String hash;
+            try {
+                final CodeSource codeSource = SymqleCompiler.class.getProtectionDomain().getCodeSource();
+                final File location = new File(codeSource.getLocation().toURI());
+                if (location.isFile()) {
+                    hash = ContentHash.of(location);
+                } else {
+                    final StringBuilder builder = new StringBuilder();
+                    describeFiles(location, "", builder);
+                    final byte[] description = builder.toString().getBytes("UTF-8");
+                    hash = ContentHash.of(description, description.length);
+                }
+            } catch (IOException | URISyntaxException | RuntimeException e) {
+                // unknown location: rely on the version only
+                hash = "unknown";
+            }
+            compilerBuild = COMPILER_VERSION + " " + hash;
+        }
+        return compilerBuild;
+    }
+
+    private static void describeFiles(final File dir, final String prefix, final StringBuilder builder) {
+        final File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                describeFiles(file, prefix + file.getName() + "/", builder);
+            } else {
+                builder.append(prefix).append(file.getName()).append(' ').append(file.length())
+                        .append(' ').append(file.lastModified()).append('\n');
+            }
+        }
+    }
+
+    private static Model buildModel(final List<SyntaxTree> parsedSources, final CompilationReport report)
+            throws GrammarException, ModelException {
+        final Model model = new Model(report);
+        new FinalizationProcessor().process(parsedSources, model);
+        return model;
+    }
+
+    private static void generateIncrementally(final File[] sources,
+                                              final File outputDirectory,
+                                              final File testOutputDirectory,
+                                              final File dependencyFile,
+                                              final Model model,
+                                              final CoreGenerator coreGenerator,
+                                              final TestSetGenerator testSetGenerator,
+                                              final Executor executor) throws IOException, ModelException {
+        final CompilationReport report = model.getReport();
+        final CompilationReport.Measurement dependencies = report.start(DependencyGraph.class.getSimpleName());
+        final DependencyGraph previous = DependencyGraph.load(dependencyFile);
+        final DependencyGraph current = new DependencyGraph(compilerBuild());
+        for (File source : sources) {
+            current.addSource(source, previous);
+        }
+        current.addTypes(MAIN, coreGenerator.generatedTypes(model), model);
+        current.addTypes(TEST, testSetGenerator.generatedTypes(model), model);
+        final Set<String> changedSources = previous == null || !previous.getCompilerBuild().equals(compilerBuild())
+                ? null
+                : current.changedSources(previous);
+        dependencies.finish();
+        if (changedSources != null) {
+            Log.info("Changed sources: " + changedSources);
+        }
+        // previous graph does not describe the output any more
+        if (dependencyFile.exists() && !dependencyFile.delete()) {
+            throw new IOException("Failed to delete " + dependencyFile);
+        }
+        final IncrementalFilter mainFilter =
+                new IncrementalFilter(MAIN, outputDirectory, previous, current, changedSources);
+        final IncrementalFilter testFilter =
+                new IncrementalFilter(TEST, testOutputDirectory, previous, current, changedSources);
+        generate(coreGenerator, mainFilter, outputDirectory, testSetGenerator, testFilter, testOutputDirectory,
+                model, executor);
+        report.addStatistic("typesWritten", mainFilter.written + testFilter.written);
+        report.addStatistic("typesSkipped", mainFilter.skipped + testFilter.skipped);
+        current.store(dependencyFile);
+    }
+
+    /**
+     * Runs core and test set generators. Both are submitted before waiting for any,
+     * so with a thread pool executor they run concurrently and their phases overlap.
+     */
+    private static void generate(final CoreGenerator coreGenerator,
+                                 final F<String, Boolean, RuntimeException> mainFilter,
+                                 final File outputDirectory,
+                                 final TestSetGenerator testSetGenerator,
+                                 final F<String, Boolean, RuntimeException> testFilter,
+                                 final File testOutputDirectory,
+                                 final Model model,
+                                 final Executor executor) throws IOException {
+        final CompilationReport report = model.getReport();
+        final CompilationReport.Measurement coreGeneration =
+                report.start(coreGenerator.getClass().getSimpleName());
+        final WriterGenerator.Emission core =
+                coreGenerator.submit(model, outputDirectory, mainFilter, executor, coreGeneration);
+        final CompilationReport.Measurement testSetGeneration =
+                report.start(testSetGenerator.getClass().getSimpleName());
+        final WriterGenerator.Emission testSet =
+                testSetGenerator.submit(model, testOutputDirectory, testFilter, executor, testSetGeneration);
+        core.await();
+        coreGeneration.finish();
+        testSet.await();
+        testSetGeneration.finish();
+    }
+
+    /**
+     * Accepts generated types, which should be written in incremental compilation.
+     */
+    private static class IncrementalFilter implements F<String, Boolean, RuntimeException> {
+        private final String root;
+        private final File destDir;
+        private final DependencyGraph previous;
+        private final DependencyGraph current;
+        private final Set<String> changedSources;
+        private int written;
+        private int skipped;
+
+        private IncrementalFilter(final String root,
+                                  final File destDir,
+                                  final DependencyGraph previous,
+                                  final DependencyGraph current,
+                                  final Set<String> changedSources) {
+            this.root = root;
+            this.destDir = destDir;
+            this.previous = previous;
+            this.current = current;
+            this.changedSources = changedSources;
+        }
+
+        @Override
+        public Boolean apply(final String qualifiedName) {
+            final boolean outdated = changedSources == null
+                    || previous.getSources(root, qualifiedName) == null
+                    || previous.dependsOnAny(root, qualifiedName, changedSources)
+                    || current.dependsOnAny(root, qualifiedName, changedSources)
+                    || !WriterGenerator.sourceFile(destDir, qualifiedName).exists();
+            if (outdated) {
+                written++;
+            } else {
+                skipped++;
+            }
+            return outdated;
+        }
+    }
+
+    /**
+     * Parses all sources. Sources are parsed in parallel if more than one parser thread is allowed.
+     * @param sources source sdl files
+     * @return syntax trees in the order of {@code sources}
+     * @throws IOException error reading
+     * @throws ParseException syntax error; if several sources have errors, the first one in the source order
+     * is reported
+     */
+    public final List<SyntaxTree> parse(final File[] sources) throws IOException, ParseException {
+        return parse(sources, new AtomicInteger(), null);
+    }
+
+    private List<SyntaxTree> parse(final File[] sources, final AtomicInteger reusedSources,
+                                   final CompilationReport.Measurement measurement)
+            throws IOException, ParseException {
+        final int threads = Math.min(parserThreads, sources.length);
+        final List<SyntaxTree> parsedSources = new ArrayList<SyntaxTree>(sources.length);
+        if (threads <= 1) {
+            for (File source: sources) {
+                try {
+                    parsedSources.add(parseSource(source, reusedSources));
+                } catch (ParseException e) {
+                    Log.info(e.getMessage() + " [" + source.getName() + "]");
+                    throw e;
+                }
+            }
+            return parsedSources;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, PARSER_THREAD_FACTORY);
+        try {
+            final List<Future<SyntaxTree>> futures = new ArrayList<Future<SyntaxTree>>(sources.length);
+            for (final File source: sources) {
+                final Callable<SyntaxTree> task = new Callable<SyntaxTree>() {
+                    @Override
+                    public SyntaxTree call() throws IOException, ParseException {
+                        return parseSource(source, reusedSources);
+                    }
+                };
+                futures.add(executor.submit(measurement == null ? task : measurement.measured(task)));
+            }
+            // collect in source order, so that the result and the reported error are deterministic
+            for (int i = 0; i < sources.length; i++) {
+                try {
+                    parsedSources.add(getParsed(futures.get(i)));
+                } catch (ParseException e) {
+                    Log.info(e.getMessage() + " [" + sources[i].getName() + "]");
+                    throw e;
+                }
+            }
+            return parsedSources;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static SyntaxTree getParsed(final Future<SyntaxTree> future) throws IOException, ParseException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ParseException) {
+                throw (ParseException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    private SyntaxTree parseSource(final File source, final AtomicInteger reusedSources)
+            throws IOException, ParseException {
+        if (sourceCache == null) {
+            final Reader reader = new InputStreamReader(new FileInputStream(source), "UTF-8");
+            try {
+                return parseSource(reader, source.getName(), source.length());
             } finally {
                 reader.close();
             }
         }
-        final Model model = new Model();
-        new FinalizationProcessor().process(parsedSources, model);
-        if (!outputDirectory.mkdirs() && !outputDirectory.isDirectory()) {
-            throw new IOException("Failed to create " + outputDirectory);
+        final byte[] content = Files.readAllBytes(source.toPath());
+        final String contentHash = ContentHash.of(content, content.length);
+        final SyntaxTree cached = fullParsing ? null : sourceCache.get(source, contentHash);
+        if (cached != null) {
+            reusedSources.incrementAndGet();
+            return cached;
         }
-        if (!testOutputDirectory.mkdirs() && !testOutputDirectory.isDirectory()) {
-            throw new IOException("Failed to create " + testOutputDirectory);
+        final SyntaxTree syntaxTree = parseSource(
+                new InputStreamReader(new ByteArrayInputStream(content), "UTF-8"), source.getName(), content.length);
+        sourceCache.put(source, contentHash, content.length, syntaxTree);
+        return syntaxTree;
+    }
+
+    private SyntaxTree parseSource(final Reader reader, final String name, final long length)
+            throws ParseException {
+        final CompilerEvent event = CompilerEvent.parse(name);
+        if (length >= 0) {
+            event.bytes(length);
         }
-        new CoreGenerator("org.symqle.sql").generate(model, outputDirectory);
-        new TestSetGenerator("org.symqle.testset").generate(model, testOutputDirectory);
+        final SymqleParser parser = new SymqleParser(reader);
+        parser.setFullParsing(fullParsing);
+        final SyntaxTree syntaxTree = new SyntaxTree(parser.SymqleUnit(), name);
+        event.commit();
+        return syntaxTree;
     }
 
+    private static final ThreadFactory WRITER_THREAD_FACTORY = new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "symqle-writer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private static final ThreadFactory PARSER_THREAD_FACTORY = new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread thread = new Thread(r, "symqle-parser-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
 }
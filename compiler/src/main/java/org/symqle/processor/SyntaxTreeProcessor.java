@@ -30,9 +30,11 @@ public abstract class SyntaxTreeProcessor extends ChainedProcessor {
     public final void process(final List<SyntaxTree> trees, final Model model) throws GrammarException {
         predecessor().process(trees, model);
         Log.info("STARTING " + getClass().getSimpleName());
+        final CompilationReport.Measurement measurement = model.getReport().start(getClass().getSimpleName());
         for (SyntaxTree tree : trees) {
             process(tree, model);
         }
+        measurement.finish();
         Log.info("FINISHED " + getClass().getSimpleName());
     }
 
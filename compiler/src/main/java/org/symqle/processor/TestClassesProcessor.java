@@ -17,15 +17,12 @@
 package org.symqle.processor;
 
 import org.symqle.model.*;
-import org.symqle.parser.ParseException;
-import org.symqle.parser.SimpleNode;
-import org.symqle.parser.SymqleParser;
-import org.symqle.parser.SyntaxTree;
 import org.symqle.util.Log;
 import org.symqle.util.Utils;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -42,7 +39,9 @@ public class TestClassesProcessor extends ModelProcessor {
             if (!classDef.isPublic()) {
                 continue;
             }
-            final InterfaceDefinition testInterface = newTestInterface(classDef.getName());
+            final InterfaceDefinition testInterface = newTestInterface(classDef);
+            testInterface.addOrigin(classDef);
+            testInterface.addOrigin(symqle);
             for (MethodDefinition classMethod: classDef.getDeclaredMethods()) {
                 if (classMethod.isPublic() && !classMethod.getOtherModifiers().contains("abstract")
                         && !classMethod.getName().startsWith("z$")) {
@@ -81,29 +80,20 @@ public class TestClassesProcessor extends ModelProcessor {
         return new InterfaceJavadocProcessor();
     }
 
-    private InterfaceDefinition newTestInterface(final String testedClassName) {
+    private InterfaceDefinition newTestInterface(final ClassDefinition testedClass) {
         StringWriter stringWriter = new StringWriter();
         PrintWriter printWriter = new PrintWriter(stringWriter);
         printWriter.println();
         printWriter.println("/**");
-        printWriter.print(" * Tests "); printWriter.print(testedClassName); printWriter.println(" class");
+        printWriter.print(" * Tests "); printWriter.print(testedClass.getName()); printWriter.println(" class");
         printWriter.println("*/");
         printWriter.println();
-        printWriter.print("public interface "); printWriter.print(testedClassName); printWriter.println("TestSet {");
-        printWriter.println("}");
         printWriter.flush();
-        final String source = stringWriter.toString();
-        try {
-            final SimpleNode simpleNode = SymqleParser.createParser(source).SymqleInterfaceDeclaration();
-            SyntaxTree syntaxTree = new SyntaxTree(simpleNode, source);
-            return new InterfaceDefinition(syntaxTree);
-        } catch (ParseException e) {
-            throw new RuntimeException("Internal error, source: " + source, e);
-        } catch (GrammarException e) {
-            throw new RuntimeException("Internal error, source: " + source, e);
-        } catch (RuntimeException e) {
-            throw new RuntimeException("Internal error, source: " + source, e);
-        }
+        return InterfaceDefinition.builder(testedClass.getName() + "TestSet")
+                .comment(stringWriter.toString())
+                .accessModifier("public")
+                .sourceRef(testedClass.getSourceRef())
+                .build();
     }
 
     private MethodDefinition newSymqleTestMethod(final MethodDefinition testedMethod,
@@ -134,15 +124,10 @@ public class TestClassesProcessor extends ModelProcessor {
                     }));
         printWriter.println(")");
         printWriter.println("*/");
-
-        printWriter.print("void ");
-        printWriter.print("test_");
-        printWriter.print(testedMethod.signature().replaceAll("[(,)]", "_").replaceAll("\\[|\\]", ""));
-        printWriter.print(parameterIndex);
-        printWriter.println("() throws Exception;");
         printWriter.flush();
-        final String source = stringWriter.toString();
-        return MethodDefinition.parseAbstract(source, target);
+        return newTestMethod(target, stringWriter.toString(),
+                "test_" + testedMethod.signature().replaceAll("[(,)]", "_").replaceAll("\\[|\\]", "")
+                        + parameterIndex);
     }
 
     private MethodDefinition newClassTestMethod(final MethodDefinition testedMethod,
@@ -166,14 +151,18 @@ public class TestClassesProcessor extends ModelProcessor {
                     }));
         printWriter.println(")");
         printWriter.println("*/");
-
-        printWriter.print("void ");
-        printWriter.print("test_");
-        printWriter.print(testedMethod.signature().replaceAll("[(,]", "_").replaceAll("\\)|\\[|\\]", ""));
-        printWriter.println("() throws Exception;");
         printWriter.flush();
-        final String source = stringWriter.toString();
-        return MethodDefinition.parseAbstract(source, target);
+        return newTestMethod(target, stringWriter.toString(),
+                "test_" + testedMethod.signature().replaceAll("[(,]", "_").replaceAll("\\)|\\[|\\]", ""));
+    }
+
+    private MethodDefinition newTestMethod(final InterfaceDefinition target, final String comment,
+                                           final String name) {
+        return MethodDefinition.builder(target, name)
+                .comment(comment)
+                .resultType(Type.VOID)
+                .throwing(Collections.singleton(Type.of("Exception")))
+                .build();
     }
 
     private boolean canBeParameter(final ClassDefinition classDef,
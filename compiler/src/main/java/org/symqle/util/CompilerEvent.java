@@ -0,0 +1,191 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.util;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * JDK Flight Recorder event emitted by the compiler.
+ * Every event has type name, file and byte count fields; duration is the time between
+ * creation of the event and {@link #commit()}.
+ * The compiler targets Java 7, so jdk.jfr is accessed reflectively via {@code jdk.jfr.EventFactory};
+ * if it is not available (JVM older than 11), events do nothing.
+ * Events are created and committed in the same thread.
+ * @author Alexander Izyurov
+ */
+public final class CompilerEvent {
+
+    private static final Method NEW_EVENT;
+    private static final Method BEGIN;
+    private static final Method END;
+    private static final Method COMMIT;
+    private static final Method SET;
+
+    static {
+        Method[] methods;
+        try {
+            final Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+            final Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            methods = new Method[] {
+                    eventFactoryClass.getMethod("newEvent"),
+                    eventClass.getMethod("begin"),
+                    eventClass.getMethod("end"),
+                    eventClass.getMethod("commit"),
+                    eventClass.getMethod("set", int.class, Object.class)
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // jdk.jfr not available: events are disabled
+            methods = new Method[5];
+        }
+        NEW_EVENT = methods[0];
+        BEGIN = methods[1];
+        END = methods[2];
+        COMMIT = methods[3];
+        SET = methods[4];
+    }
+
+    private static final Kind PHASE = new Kind("org.symqle.Phase", "Symqle Compilation Phase");
+    private static final Kind PARSE = new Kind("org.symqle.Parse", "Symqle Source Parse");
+    private static final Kind FILE_WRITTEN = new Kind("org.symqle.FileWritten", "Symqle File Written");
+
+    private static final int TYPE_NAME = 0;
+    private static final int FILE = 1;
+    private static final int BYTES = 2;
+
+    private final Object event;
+
+    private CompilerEvent(final Kind kind, final String typeName, final String file) {
+        this.event = kind.begin();
+        set(TYPE_NAME, typeName);
+        set(FILE, file);
+    }
+
+    /**
+     * Starts an event for a compilation phase.
+     * @param phaseName phase name, e.g. processor class name
+     * @return running event
+     */
+    public static CompilerEvent phase(final String phaseName) {
+        return new CompilerEvent(PHASE, phaseName, null);
+    }
+
+    /**
+     * Starts an event for parsing of a source file.
+     * @param file source file name
+     * @return running event
+     */
+    public static CompilerEvent parse(final String file) {
+        return new CompilerEvent(PARSE, null, file);
+    }
+
+    /**
+     * Starts an event for writing of a generated file.
+     * @param typeName name of the generated type
+     * @param file the file path
+     * @return running event
+     */
+    public static CompilerEvent fileWritten(final String typeName, final String file) {
+        return new CompilerEvent(FILE_WRITTEN, typeName, file);
+    }
+
+    /**
+     * Sets byte count of the processed source or written file.
+     * @param bytes the count
+     * @return this
+     */
+    public CompilerEvent bytes(final long bytes) {
+        set(BYTES, bytes);
+        return this;
+    }
+
+    /**
+     * Ends the event and commits it to recording if the event type is enabled.
+     */
+    public void commit() {
+        if (event != null) {
+            try {
+                END.invoke(event);
+                COMMIT.invoke(event);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                // events are diagnostics only; never break compilation
+            }
+        }
+    }
+
+    private void set(final int index, final Object value) {
+        if (event != null && value != null) {
+            try {
+                SET.invoke(event, index, value);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                // events are diagnostics only; never break compilation
+            }
+        }
+    }
+
+    /**
+     * One event type. Holds jdk.jfr.EventFactory for it; the factory is null if jdk.jfr is not available.
+     */
+    private static final class Kind {
+        private final Object factory;
+
+        private Kind(final String name, final String label) {
+            this.factory = NEW_EVENT == null ? null : createFactory(name, label);
+        }
+
+        private Object begin() {
+            if (factory == null) {
+                return null;
+            }
+            try {
+                final Object event = NEW_EVENT.invoke(factory);
+                BEGIN.invoke(event);
+                return event;
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                return null;
+            }
+        }
+
+        private static Object createFactory(final String name, final String label) {
+            try {
+                final Constructor<?> annotationElement = Class.forName("jdk.jfr.AnnotationElement")
+                        .getConstructor(Class.class, Object.class);
+                final Constructor<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor")
+                        .getConstructor(Class.class, String.class);
+                final List<Object> annotations = new ArrayList<Object>();
+                annotations.add(annotationElement.newInstance(Class.forName("jdk.jfr.Name"), name));
+                annotations.add(annotationElement.newInstance(Class.forName("jdk.jfr.Label"), label));
+                annotations.add(annotationElement.newInstance(Class.forName("jdk.jfr.Category"),
+                        new String[] {"Symqle"}));
+                // the order should match TYPE_NAME, FILE, BYTES
+                final List<Object> fields = Arrays.<Object>asList(
+                        valueDescriptor.newInstance(String.class, "typeName"),
+                        valueDescriptor.newInstance(String.class, "file"),
+                        valueDescriptor.newInstance(long.class, "bytes"));
+                return Class.forName("jdk.jfr.EventFactory").getMethod("create", List.class, List.class)
+                        .invoke(null, annotations, fields);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // cannot register the event type: it is disabled
+                return null;
+            }
+        }
+    }
+}
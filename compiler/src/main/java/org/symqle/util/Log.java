@@ -19,18 +19,29 @@ package org.symqle.util;
 /**
  * Simple delegating logger. Actual implementation can be set in runtime.
  * If it is not set, log messages go to System.err.
+ * The implementation is bound to the thread, which sets it, and inherited by threads it creates
+ * (like parser and writer threads of a compilation), so that concurrent compilations
+ * in one JVM log to their own loggers.
  * @author lvovich
  */
 public abstract class Log {
 
-    private static Log instance;
+    private static final InheritableThreadLocal<Log> INSTANCE = new InheritableThreadLocal<Log>();
 
     /**
-     * Set Log instance, which will do the actual logging.
-     * @param log the logger to set.
+     * Set Log instance, which will do the actual logging in current thread
+     * and threads created by it afterwards.
+     * @param log the logger to set; null means System.err
+     * @return previously set logger; null if not set
      */
-    public static void setLog(final Log log) {
-        instance = log;
+    public static Log setLog(final Log log) {
+        final Log previous = INSTANCE.get();
+        if (log == null) {
+            INSTANCE.remove();
+        } else {
+            INSTANCE.set(log);
+        }
+        return previous;
     }
 
     /**
@@ -49,6 +60,7 @@ public abstract class Log {
      * @param message log message.
      */
     public static void info(final String message) {
+        final Log instance = INSTANCE.get();
         if (instance != null) {
             instance.logInfo(message);
         } else {
@@ -61,6 +73,7 @@ public abstract class Log {
      * @param message log message.
      */
     public static void debug(final String message) {
+        final Log instance = INSTANCE.get();
         if (instance != null) {
             instance.logDebug(message);
         } else {
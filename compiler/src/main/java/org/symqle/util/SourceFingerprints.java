@@ -0,0 +1,149 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Size, modification time and content hash of source files, identified by file name.
+ * A source is hashed only if its size or modification time differs from a previous record.
+ * Records are stored as tab separated "source" lines of a file, which may have other lines as well.
+ * @author Alexander Izyurov
+ */
+public final class SourceFingerprints {
+
+    /**
+     * Field separator of stored lines.
+     */
+    public static final String SEPARATOR = "\t";
+
+    private static final String SOURCE = "source";
+
+    private final Map<String, Entry> entries = new TreeMap<String, Entry>();
+
+    /**
+     * Registers a source with hash of its current content.
+     * The hash is taken from previous fingerprints if size and modification time of the file are the same.
+     * @param source the source file
+     * @param previous fingerprints of previous build; null if not available
+     * @throws IOException read failure
+     */
+    public void add(final File source, final SourceFingerprints previous) throws IOException {
+        final String name = source.getName();
+        final long size = source.length();
+        final long lastModified = source.lastModified();
+        final Entry previousEntry = previous == null ? null : previous.entries.get(name);
+        final String hash = previousEntry != null && previousEntry.size == size
+                && previousEntry.lastModified == lastModified
+                ? previousEntry.hash
+                : ContentHash.of(source);
+        entries.put(name, new Entry(size, lastModified, hash));
+    }
+
+    /**
+     * Sources, which are new, removed or have different content since previous fingerprints were taken.
+     * @param previous fingerprints of previous build
+     * @return names of changed sources
+     */
+    public Set<String> changedSince(final SourceFingerprints previous) {
+        final Set<String> changed = new TreeSet<String>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            final Entry previousEntry = previous.entries.get(entry.getKey());
+            if (previousEntry == null || !entry.getValue().hash.equals(previousEntry.hash)) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String name : previous.entries.keySet()) {
+            if (!entries.containsKey(name)) {
+                changed.add(name);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Checks whether sizes and modification times of all sources are the same as in other fingerprints.
+     * @param other the fingerprints to compare with
+     * @return true if the same
+     */
+    public boolean hasSameTimestamps(final SourceFingerprints other) {
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            final Entry otherEntry = other.entries.get(entry.getKey());
+            if (otherEntry == null || otherEntry.size != entry.getValue().size
+                    || otherEntry.lastModified != entry.getValue().lastModified) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a "source" line for each source.
+     * @param out where to write
+     */
+    public void store(final PrintWriter out) {
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            final Entry sourceEntry = entry.getValue();
+            out.println(SOURCE + SEPARATOR + entry.getKey() + SEPARATOR + sourceEntry.size
+                    + SEPARATOR + sourceEntry.lastModified + SEPARATOR + sourceEntry.hash);
+        }
+    }
+
+    /**
+     * Reads a line written by {@link #store(PrintWriter)}.
+     * @param fields fields of the line, see {@link #split(String)}
+     * @return true if it is a valid "source" line; false if it is some other line
+     */
+    public boolean load(final String[] fields) {
+        if (fields.length != 5 || !fields[0].equals(SOURCE)) {
+            return false;
+        }
+        try {
+            entries.put(fields[1], new Entry(Long.parseLong(fields[2]), Long.parseLong(fields[3]), fields[4]));
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Splits a stored line to fields.
+     * @param line the line; may be null
+     * @return fields; empty array for null line
+     */
+    public static String[] split(final String line) {
+        return line == null ? new String[0] : line.split(SEPARATOR, -1);
+    }
+
+    private static final class Entry {
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+
+        private Entry(final long size, final long lastModified, final String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+}
@@ -20,11 +20,14 @@ import java.util.*;
 
 /**
  * Topological sort.
+ * Kahn's algorithm, O(V+E). The result is deterministic: independent items keep the order,
+ * in which they were first added.
  * @param <T> type of sorted objects
  */
 public class TSort<T> {
 
-    private final Map<T, Set<T>> inputData = new HashMap<T, Set<T>>();
+    // dependencies by dependent in order of addition
+    private final Map<T, Set<T>> inputData = new LinkedHashMap<T, Set<T>>();
 
 
     /**
@@ -38,36 +41,18 @@ public class TSort<T> {
     @SafeVarargs
     public final void add(final T dependent, final T... dependencies) {
         if (!inputData.containsKey(dependent)) {
-            inputData.put(dependent, new HashSet<T>());
+            inputData.put(dependent, new LinkedHashSet<T>());
         }
         final Set<T> knownDependencies = inputData.get(dependent);
         for (T dependency: dependencies) {
             if (!inputData.containsKey(dependency)) {
-                inputData.put(dependency, new HashSet<T>());
+                inputData.put(dependency, new LinkedHashSet<T>());
             }
             knownDependencies.add(dependency);
         }
 
     }
 
-    private Collection<SortedItem> createSortedItems() {
-        // parallel arrays
-        Map<T, SortedItem> sortedItemsByInputData = new HashMap<T, SortedItem>(inputData.size());
-        for (T dependent: inputData.keySet()) {
-            sortedItemsByInputData.put(dependent, new SortedItem(dependent));
-        }
-        for (Map.Entry<T, SortedItem> entry: sortedItemsByInputData.entrySet()) {
-            final T dependent = entry.getKey();
-            final SortedItem dependentItem = entry.getValue();
-            for (T dependency: inputData.get(dependent)) {
-                final SortedItem dependencyItem = sortedItemsByInputData.get(dependency);
-                dependentItem.addLeft(dependencyItem);
-                dependencyItem.addRight(dependentItem);
-            }
-        }
-        return sortedItemsByInputData.values();
-    }
-
     /**
      * Sorts and returns the sorted list.
      * Method does not modify {@code this}.
@@ -75,92 +60,99 @@ public class TSort<T> {
      * @throws IllegalStateException there are cyclic dependencies, cannot sort
      */
     public final List<T> sort() {
-        final List<SortedItem> unsorted;
-        final List<SortedItem> sorted;
-        // invariants:
-        // (0) union of sorted and unsorted is sortedItems
-        // (1) if sorted.contains(a) and unsorted.contains(b) than !order(b,a)
-        //   i.e. all elements of unsorted are to the right for any element of sorted
-        // (2) if sorted.contains(a) and sorted.contains(b) and order(a,b) than sorted.index(a) < sorted.index(b)
-        //   i.e. all elements of sorted are properly ordered
-        // (3) if element has no dependencies within unsorted,
-        //   it is to the left from any item having dependencies in this list
-        // (4) each sortedItem in unsorted has correcs hasNoDependencies and rightNeighbors within unsorted
+        final List<T> result = new ArrayList<T>(inputData.size());
+        for (List<T> layer: sortLayers()) {
+            result.addAll(layer);
+        }
+        return result;
+    }
 
-        unsorted = new LinkedList<SortedItem>(createSortedItems());
-        sorted = new ArrayList<SortedItem>(unsorted.size());
-        // now invariants (0)-(2) and (4) are true
-        // make (3) true
-        for (int i = 0; i < unsorted.size(); i++) {
-            if (unsorted.get(i).hasNoDependencies()) {
-                // this remove-add keeps in place elements with index>i,
-                // so we can safe continue loop by i
-                final SortedItem moved = unsorted.remove(i);
-                unsorted.add(0, moved);
+    /**
+     * Sorts and returns topological layers.
+     * The first layer contains items without dependencies; each next layer contains items,
+     * which depend only on items of previous layers. Items of the same layer are independent of each other.
+     * Method does not modify {@code this}.
+     * @return the layers in dependency order
+     * @throws IllegalStateException there are cyclic dependencies, cannot sort
+     */
+    public final List<List<T>> sortLayers() {
+        final Map<T, Integer> unresolvedCounts = new HashMap<T, Integer>(inputData.size() * 2);
+        final Map<T, List<T>> dependents = new HashMap<T, List<T>>(inputData.size() * 2);
+        List<T> layer = new ArrayList<T>();
+        for (Map.Entry<T, Set<T>> entry: inputData.entrySet()) {
+            final T dependent = entry.getKey();
+            unresolvedCounts.put(dependent, entry.getValue().size());
+            if (entry.getValue().isEmpty()) {
+                layer.add(dependent);
+            }
+            for (T dependency: entry.getValue()) {
+                List<T> list = dependents.get(dependency);
+                if (list == null) {
+                    list = new ArrayList<T>();
+                    dependents.put(dependency, list);
+                }
+                list.add(dependent);
             }
         }
-        // all invariants are true
-        // move to empty unsorted keeping invariants
-        while (unsorted.size() > 0) {
-            if (unsorted.get(0).hasNoDependencies()) {
-                final SortedItem moved = unsorted.remove(0);
-                sorted.add(moved);
-                // restore invariant (4) and (3)
-                for (SortedItem right: moved.getRightNeighbors()) {
-                    right.removeLeft(moved);
-                    if (right.hasNoDependencies()) {
-                        unsorted.remove(right);
-                        unsorted.add(0, right);
-                    }
+        final List<List<T>> layers = new ArrayList<List<T>>();
+        int sortedCount = 0;
+        while (!layer.isEmpty()) {
+            layers.add(Collections.unmodifiableList(layer));
+            sortedCount += layer.size();
+            final List<T> nextLayer = new ArrayList<T>();
+            for (T item: layer) {
+                final List<T> right = dependents.get(item);
+                if (right == null) {
+                    continue;
                 }
-            } else {
-                StringBuilder cycle = new StringBuilder();
-                for (SortedItem sortedItem: unsorted) {
-                    cycle.append(sortedItem.getItem());
-                    cycle.append(" ");
+                for (T dependent: right) {
+                    final int remaining = unresolvedCounts.get(dependent) - 1;
+                    unresolvedCounts.put(dependent, remaining);
+                    if (remaining == 0) {
+                        nextLayer.add(dependent);
+                    }
                 }
-                throw new IllegalStateException("Cyclic dependency: " + cycle.toString());
             }
+            layer = nextLayer;
         }
-        // done: unsorted.size()=0 && invariant(2) && invariant (0) => sorted is the desired result
-        List<T> result = new ArrayList<T>(sorted.size());
-        for (SortedItem sortedItem: sorted) {
-            result.add(sortedItem.getItem());
+        if (sortedCount < inputData.size()) {
+            throw new IllegalStateException("Cyclic dependency: " + findCycle(unresolvedCounts));
         }
-        return result;
+        return layers;
     }
 
-    private class SortedItem {
-        private Set<SortedItem> leftNeighbors = new HashSet<SortedItem>();
-        private Set<SortedItem> rightNeighbors = new HashSet<SortedItem>();
-        private final T item;
-
-        public SortedItem(final T item) {
-            this.item = item;
-        }
-
-        public void addLeft(final SortedItem left) {
-            leftNeighbors.add(left);
-        }
-        public void addRight(final SortedItem right) {
-            rightNeighbors.add(right);
-        }
-
-        public boolean hasNoDependencies() {
-            return leftNeighbors.isEmpty();
-        }
-
-        public void removeLeft(final SortedItem leftNeighbor) {
-            leftNeighbors.remove(leftNeighbor);
-        }
-
-        public List<SortedItem> getRightNeighbors() {
-            return new ArrayList<SortedItem>(rightNeighbors);
+    /**
+     * Finds a cycle among unsorted items. Each of them has at least one unsorted dependency,
+     * so following unsorted dependencies eventually comes back to an already visited item.
+     * @param unresolvedCounts number of unsorted dependencies by item
+     * @return the cycle like "a -> b -> a"
+     */
+    private String findCycle(final Map<T, Integer> unresolvedCounts) {
+        T start = null;
+        for (T item: inputData.keySet()) {
+            if (unresolvedCounts.get(item) > 0) {
+                start = item;
+                break;
+            }
         }
-
-        public T getItem() {
-            return item;
+        final Map<T, Integer> positions = new HashMap<T, Integer>();
+        final List<T> path = new ArrayList<T>();
+        T current = start;
+        while (!positions.containsKey(current)) {
+            positions.put(current, path.size());
+            path.add(current);
+            T next = null;
+            for (T dependency: inputData.get(current)) {
+                if (unresolvedCounts.get(dependency) > 0) {
+                    next = dependency;
+                    break;
+                }
+            }
+            current = next;
         }
+        final List<T> cycle = new ArrayList<T>(path.subList(positions.get(current), path.size()));
+        cycle.add(current);
+        return Utils.format(cycle, "", " -> ", "");
     }
 
 }
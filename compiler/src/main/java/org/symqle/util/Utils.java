@@ -17,9 +17,11 @@
 package org.symqle.util;
 
 import org.symqle.model.F;
+import org.symqle.model.Renderable;
 import org.symqle.parser.SyntaxTree;
 import org.symqle.processor.GrammarException;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
@@ -120,6 +122,49 @@ public final class Utils {
         return builder.toString();
     }
 
+    /**
+     * Write representation of list in the same format as {@link #format(java.util.Collection, String, String, String)}.
+     * @param out where to write
+     * @param list items. render() is applied to each.
+     * @param prefix string to prepend
+     * @param separator string to insert between items
+     * @param suffix string to append
+     * @throws IOException write failure
+     */
+    public static void render(final Appendable out, final Collection<? extends Renderable> list,
+                              final String prefix, final String separator, final String suffix)
+            throws IOException {
+        if (list.isEmpty()) {
+            return;
+        }
+        out.append(prefix);
+        boolean theFirst = true;
+        for (final Renderable item: list) {
+            if (!theFirst) {
+                out.append(separator);
+            }
+            theFirst = false;
+            item.render(out);
+        }
+        out.append(suffix);
+    }
+
+    /**
+     * Java source of an element as String.
+     * @param renderable the element
+     * @return the text written by {@link Renderable#render(Appendable)}
+     */
+    public static String asString(final Renderable renderable) {
+        final StringBuilder builder = new StringBuilder();
+        try {
+            renderable.render(builder);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new IllegalStateException(e);
+        }
+        return builder.toString();
+    }
+
     /**
      * Convert a collection of type {@code T} to a collection of {@code R}.
      * @param list original collection
@@ -0,0 +1,147 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.daemon;
+
+import junit.framework.TestCase;
+import org.symqle.processor.SymqleCompiler;
+import org.symqle.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class CompilerDaemonTest extends TestCase {
+
+    private File workDir;
+    private File daemonFile;
+    private CompilerDaemon daemon;
+    private Thread server;
+    private File[] sources;
+
+    @Override
+    protected void setUp() throws Exception {
+        workDir = Files.createTempDirectory("symqle").toFile();
+        final File common = new File(workDir, "CommonClasses.sdl");
+        Files.copy(new File("src/test-data/model/CommonClasses.sdl").toPath(), common.toPath());
+        final File extra = new File(workDir, "Extra.sdl");
+        write(extra, "public interface Lonely<T> {}\n");
+        sources = new File[] {common, extra};
+        daemonFile = new File(workDir, "daemon");
+        daemon = new CompilerDaemon(daemonFile);
+        daemon.start();
+        server = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    daemon.serve();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        server.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        daemon.stop();
+        server.join();
+        delete(workDir);
+    }
+
+    public void testCompile() throws Exception {
+        final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+        final File output = new File(workDir, "main");
+        final String first = DaemonClient.connect(daemonFile)
+                .compile(sources, output, new File(workDir, "test"), null, collect(messages));
+        assertTrue(first, first.contains("\"sourcesReused\": 0"));
+        assertTrue(messages.contains("STARTING FinalizationProcessor"));
+        assertTrue(new File(output, "org/symqle/sql/Lonely.java").exists());
+        assertEquals(2, daemon.getCachedSources());
+
+        write(sources[1], "public interface Lonely<T, U> {}\n");
+        final String second = DaemonClient.connect(daemonFile)
+                .compile(sources, output, new File(workDir, "test"), null, collect(messages));
+        assertTrue(second, second.contains("\"sourcesReused\": 1"));
+        assertTrue(new String(Files.readAllBytes(new File(output, "org/symqle/sql/Lonely.java").toPath()), "UTF-8")
+                .contains("Lonely<T, U>"));
+    }
+
+    public void testFailure() throws Exception {
+        write(sources[1], "public interface Lonely<T> {\n");
+        try {
+            DaemonClient.connect(daemonFile)
+                    .compile(sources, new File(workDir, "main"), new File(workDir, "test"), null,
+                            collect(new ArrayList<String>()));
+            fail("RemoteCompilationException expected");
+        } catch (RemoteCompilationException e) {
+            assertEquals("org.symqle.parser.ParseException", e.getRemoteClassName());
+        }
+    }
+
+    public void testNoDaemon() throws Exception {
+        daemon.stop();
+        assertFalse(daemonFile.exists());
+        assertNull(DaemonClient.connect(daemonFile));
+    }
+
+    public void testOtherBuild() throws Exception {
+        final Protocol.DaemonAddress address = Protocol.readDaemonFile(daemonFile);
+        assertEquals(SymqleCompiler.compilerBuild(), address.getCompilerVersion());
+        Protocol.writeDaemonFile(daemonFile, address.getPort(), address.getToken(),
+                SymqleCompiler.COMPILER_VERSION + " other");
+        assertNull(DaemonClient.connect(daemonFile));
+    }
+
+    private static Log collect(final List<String> messages) {
+        return new Log() {
+            @Override
+            public void logInfo(final String message) {
+                messages.add(message);
+            }
+
+            @Override
+            public void logDebug(final String message) {
+            }
+        };
+    }
+
+    private static void write(final File file, final String content) throws IOException {
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+
+package org.symqle.generator;
+
+import junit.framework.TestCase;
+import org.symqle.processor.SymqleCompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+public class ParallelEmissionTest extends TestCase {
+
+    private File workDir;
+    private File[] sources;
+
+    @Override
+    protected void setUp() throws Exception {
+        workDir = Files.createTempDirectory("symqle").toFile();
+        sources = new File[] {
+            new File("src/test-data/model/CommonClasses.sdl"),
+            new File("src/test-data/model/ProductionWithNonTrivialInheritance.sdl")
+        };
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(workDir);
+    }
+
+    public void testParallelEmission() throws Exception {
+        final File outputDirectory = new File(workDir, "main");
+        final File testOutputDirectory = new File(workDir, "test");
+        final Map<String, Long> sequential = new SymqleCompiler(1, 1)
+                .doAll(sources, outputDirectory, testOutputDirectory).getStatistics();
+        final File parallelOutput = new File(workDir, "parallelMain");
+        final File parallelTestOutput = new File(workDir, "parallelTest");
+        final Map<String, Long> parallel = new SymqleCompiler(2, 4)
+                .doAll(sources, parallelOutput, parallelTestOutput).getStatistics();
+        assertEquals(sequential.get("CoreGenerator.filesWritten"), parallel.get("CoreGenerator.filesWritten"));
+        assertEquals(sequential.get("TestSetGenerator.filesWritten"),
+                parallel.get("TestSetGenerator.filesWritten"));
+        assertSameFiles(outputDirectory, parallelOutput);
+        assertSameFiles(testOutputDirectory, parallelTestOutput);
+    }
+
+    private static void assertSameFiles(final File expected, final File actual) throws IOException {
+        final String[] names = expected.list();
+        Arrays.sort(names);
+        final String[] actualNames = actual.list();
+        Arrays.sort(actualNames);
+        assertEquals(Arrays.asList(names), Arrays.asList(actualNames));
+        for (String name : names) {
+            final File expectedFile = new File(expected, name);
+            if (expectedFile.isDirectory()) {
+                assertSameFiles(expectedFile, new File(actual, name));
+            } else {
+                assertTrue(name, Arrays.equals(Files.readAllBytes(expectedFile.toPath()),
+                        Files.readAllBytes(new File(actual, name).toPath())));
+            }
+        }
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -76,6 +76,69 @@ public class InheritanceTest extends TestCase {
                 TestUtils.pureCode(asSelectStatement.toString()));
     }
 
+    public void testAllMethodsFollowAncestorChanges() throws Exception {
+        final Model model = ModelUtils.prepareModel();
+        String source = "src/test-data/model/SimpleInheritance.sdl";
+        Reader reader = new InputStreamReader(new FileInputStream(source));
+        SymqleParser parser = new SymqleParser(reader);
+        final List<SyntaxTree> syntaxTrees = Arrays.asList(new SyntaxTree(parser.SymqleUnit(), source));
+        new InheritanceProcessor().process(syntaxTrees, model);
+        final ClassDefinition cursorSpec = model.getClassDef("AbstractCursorSpecification");
+        final int methodCount = cursorSpec.getAllMethods(model).size();
+        assertNull(cursorSpec.getMethodBySignature("probe()", model));
+        final InterfaceDefinition selectStatement = model.getInterface("SelectStatement");
+        assertTrue(cursorSpec.getAllAncestors(model).contains(selectStatement.getType()));
+        selectStatement.addMethod(MethodDefinition.builder(selectStatement, "probe").build());
+        assertNotNull(cursorSpec.getMethodBySignature("probe()", model));
+        assertEquals(methodCount + 1, cursorSpec.getAllMethods(model).size());
+    }
+
+    public void testInheritedMethodsAreShared() throws Exception {
+        final Model model = ModelUtils.prepareModel();
+        String source = "src/test-data/model/SimpleInheritance.sdl";
+        Reader reader = new InputStreamReader(new FileInputStream(source));
+        SymqleParser parser = new SymqleParser(reader);
+        final List<SyntaxTree> syntaxTrees = Arrays.asList(new SyntaxTree(parser.SymqleUnit(), source));
+        new InheritanceProcessor().process(syntaxTrees, model);
+        final ClassDefinition cursorSpec = model.getClassDef("AbstractCursorSpecification");
+        final InterfaceDefinition selectStatement = model.getInterface("SelectStatement");
+        final MethodDefinition probe = MethodDefinition.builder(selectStatement, "probe").build();
+        selectStatement.addMethod(probe);
+        final MethodDefinition inherited = cursorSpec.getMethodBySignature("probe()", model);
+        assertSame(inherited, cursorSpec.getMethodBySignature("probe()", model));
+        try {
+            inherited.replaceComment("// changed\n");
+            fail("shared inherited method modified");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        // comment changes do not invalidate the method table, but are visible through it
+        probe.replaceComment("// probe\n");
+        assertSame(inherited, cursorSpec.getMethodBySignature("probe()", model));
+        assertEquals("// probe\n", inherited.getComment());
+        final MethodDefinition copy = probe.override(cursorSpec, model);
+        copy.replaceComment("// copy\n");
+        assertEquals("// probe\n", inherited.getComment());
+    }
+
+    public void testAncestorsFollowChanges() throws Exception {
+        final Model model = ModelUtils.prepareModel();
+        String source = "src/test-data/model/SimpleInheritance.sdl";
+        Reader reader = new InputStreamReader(new FileInputStream(source));
+        SymqleParser parser = new SymqleParser(reader);
+        final List<SyntaxTree> syntaxTrees = Arrays.asList(new SyntaxTree(parser.SymqleUnit(), source));
+        new InheritanceProcessor().process(syntaxTrees, model);
+        final ClassDefinition selectStatement = model.getClassDef("AbstractSelectStatement");
+        final Set<Type> ancestors = selectStatement.getAllAncestors(model);
+        assertSame(ancestors, selectStatement.getAllAncestors(model));
+        final Type cursorSpec = model.getInterface("CursorSpecification").getType();
+        assertFalse(ancestors.contains(cursorSpec));
+        selectStatement.addImplementedInterface(cursorSpec);
+        assertTrue(selectStatement.getAllAncestors(model).contains(cursorSpec));
+        selectStatement.removeRedundantInterfaces(model);
+        assertTrue(selectStatement.getAllAncestors(model).contains(cursorSpec));
+    }
+
     public void testCyclic() throws Exception {
         final Model model = ModelUtils.prepareModel();
         String source = "src/test-data/model/CyclicInheritance.sdl";
@@ -86,9 +149,9 @@ public class InheritanceTest extends TestCase {
         {
             final ClassDefinition abstractClass = model.getClassDef("Value");
             final Set<Type> valueClassAncestors = abstractClass.getAllAncestors(model);
-            final TypeArgument typeArgument = new TypeArgument(false, null, new Type("T"));
-            final Type valueExpressionPrimary = new Type("ValueExpressionPrimary", new TypeArguments(Collections.singletonList(typeArgument)), 0);
-            final Type valueExpression = new Type("ValueExpression", new TypeArguments(Collections.singletonList(typeArgument)), 0);
+            final TypeArgument typeArgument = TypeArgument.of(false, null, Type.of("T"));
+            final Type valueExpressionPrimary = Type.of("ValueExpressionPrimary", TypeArguments.of(Collections.singletonList(typeArgument)), 0);
+            final Type valueExpression = Type.of("ValueExpression", TypeArguments.of(Collections.singletonList(typeArgument)), 0);
             assertTrue(abstractClass.toString(), valueClassAncestors.contains(valueExpressionPrimary));
             assertTrue(abstractClass.toString(), valueClassAncestors.contains(valueExpression));
         }
@@ -96,9 +159,9 @@ public class InheritanceTest extends TestCase {
         {
             final ClassDefinition abstractClass = model.getClassDef("AbstractValueExpressionPrimary");
             final Set<Type> valueClassAncestors = abstractClass.getAllAncestors(model);
-            final TypeArgument typeArgument = new TypeArgument(false, null, new Type("T"));
-            final Type valueExpressionPrimary = new Type("ValueExpressionPrimary", new TypeArguments(Collections.singletonList(typeArgument)), 0);
-            final Type valueExpression = new Type("ValueExpression", new TypeArguments(Collections.singletonList(typeArgument)), 0);
+            final TypeArgument typeArgument = TypeArgument.of(false, null, Type.of("T"));
+            final Type valueExpressionPrimary = Type.of("ValueExpressionPrimary", TypeArguments.of(Collections.singletonList(typeArgument)), 0);
+            final Type valueExpression = Type.of("ValueExpression", TypeArguments.of(Collections.singletonList(typeArgument)), 0);
             assertTrue(abstractClass.toString(), valueClassAncestors.contains(valueExpressionPrimary));
             assertTrue(abstractClass.toString(), valueClassAncestors.contains(valueExpression));
         }
@@ -125,12 +188,12 @@ public class InheritanceTest extends TestCase {
         final List<SyntaxTree> syntaxTrees = Arrays.asList(new SyntaxTree(parser.SymqleUnit(), source));
         new FinalizationProcessor().process(syntaxTrees, model);
         final ClassDefinition hashMap = model.getClassDef("HashMap");
-        final TypeArgument k = new TypeArgument(false, null, new Type("K"));
-        final TypeArgument v = new TypeArgument(false, null, new Type("V"));
+        final TypeArgument k = TypeArgument.of(false, null, Type.of("K"));
+        final TypeArgument v = TypeArgument.of(false, null, Type.of("V"));
         final Set<Type> allAncestors = hashMap.getAllAncestors(model);
         System.out.println(hashMap.getName() + hashMap.getTypeParameters() + " <- " + hashMap.getAllAncestors(model));
-        assertTrue(hashMap.toString(), allAncestors.contains(new Type("Map", new TypeArguments(Arrays.asList(k,v)), 0)));
-        assertTrue(hashMap.toString(), allAncestors.contains(new Type("AbstractMap", new TypeArguments(Arrays.asList(k,v)), 0)));
+        assertTrue(hashMap.toString(), allAncestors.contains(Type.of("Map", TypeArguments.of(Arrays.asList(k,v)), 0)));
+        assertTrue(hashMap.toString(), allAncestors.contains(Type.of("AbstractMap", TypeArguments.of(Arrays.asList(k,v)), 0)));
 
     }
 }
\ No newline at end of file
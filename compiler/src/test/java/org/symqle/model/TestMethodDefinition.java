@@ -18,6 +18,7 @@ package org.symqle.model;
 
 import junit.framework.TestCase;
 import org.symqle.util.ModelUtils;
+import org.symqle.util.Utils;
 
 /**
  * @author lvovich
@@ -29,4 +30,54 @@ public class TestMethodDefinition extends TestCase {
         ClassDefinition symqle = model.getClassDef("Symqle");
         MethodDefinition.parse("public abstract RoutineInvocation<T> apply(ValueExpression<?>... arg);", symqle);
     }
+
+    public void testBuilderMatchesParsed() throws Exception {
+        final Model model = ModelUtils.prepareModel();
+        ClassDefinition symqle = model.getClassDef("Symqle");
+        final MethodDefinition parsed = MethodDefinition.parse(
+                "public static <T> Type<T> convert(final Object<T> arg) {\n        return null;\n    }", symqle);
+        final MethodDefinition built = MethodDefinition.builder(symqle, "convert")
+                .accessModifier("public")
+                .modifiers("static")
+                .typeParameters(parsed.getTypeParameters())
+                .resultType(parsed.getResultType())
+                .parameters(parsed.getFormalParameters())
+                .body(" {\n        return null;\n    }")
+                .build();
+        assertEquals(parsed.signature(), built.signature());
+        assertEquals(parsed.declaration(), built.declaration());
+        assertEquals(parsed.toString(), built.toString());
+        assertTrue(built.isPublic());
+    }
+
+    public void testRender() throws Exception {
+        final Model model = ModelUtils.prepareModel();
+        ClassDefinition symqle = model.getClassDef("Symqle");
+        final MethodDefinition shortMethod = MethodDefinition.parse(
+                "public static <T> Type<T> convert(final Object<T> arg) {\n        return null;\n    }", symqle);
+        final StringBuilder builder = new StringBuilder();
+        shortMethod.render(builder);
+        assertEquals(shortMethod.toString(), builder.toString());
+        assertEquals("public static <T> Type<T> convert(final Object<T> arg)", shortMethod.declaration());
+        final MethodDefinition longMethod = MethodDefinition.parse(
+                "public static <T> Type<T> convertSomethingVeryLong(final Object<T> firstArgument,"
+                        + " final Object<T> secondArgument) {\n        return null;\n    }", symqle);
+        assertEquals("public static <T> Type<T> convertSomethingVeryLong(final Object<T> firstArgument,"
+                + Utils.LINE_BREAK + "            final Object<T> secondArgument)", longMethod.declaration());
+    }
+
+    public void testSignature() throws Exception {
+        final Model model = ModelUtils.prepareModel();
+        ClassDefinition symqle = model.getClassDef("Symqle");
+        final MethodDefinition method = MethodDefinition.parse(
+                "public static <T> Type<T> convert(final Object<T> arg, int[] values) {\n        return null;\n    }",
+                symqle);
+        assertEquals("convert(Object,int[])", method.signature());
+        assertSame(method.getSignature(), method.getSignature());
+        assertEquals("convert(int[])", method.reducedSignature());
+        final MethodDefinition other = MethodDefinition.parse(
+                "static <U> Object<U> convert(Object<U> other, int[] x);", symqle);
+        assertEquals(method.getSignature(), other.getSignature());
+        assertEquals(method.getSignature().hashCode(), other.getSignature().hashCode());
+    }
 }
@@ -0,0 +1,94 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.model;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TypeTest extends TestCase {
+
+    public void testInterning() throws Exception {
+        final Type list1 = Type.of("List", TypeArguments.of(Arrays.asList(TypeArgument.of("String"))), 0);
+        final Type list2 = Type.of("List", TypeArguments.of(Arrays.asList(TypeArgument.of("String"))), 0);
+        assertSame(list1, list2);
+        assertSame(list1.arrayOf(), list2.arrayOf());
+        assertNotSame(list1, list1.arrayOf());
+    }
+
+    public void testConcurrentInterning() throws Exception {
+        final int count = 1000;
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<List<Type>>> futures = new ArrayList<Future<List<Type>>>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(new Callable<List<Type>>() {
+                    @Override
+                    public List<Type> call() {
+                        final List<Type> types = new ArrayList<Type>(count);
+                        for (int i = 0; i < count; i++) {
+                            types.add(Type.of("Concurrent" + i,
+                                    TypeArguments.of(Arrays.asList(TypeArgument.of("String"))), 0));
+                        }
+                        return types;
+                    }
+                }));
+            }
+            final List<Type> first = futures.get(0).get();
+            for (Future<List<Type>> future : futures) {
+                final List<Type> types = future.get();
+                for (int i = 0; i < count; i++) {
+                    assertSame(first.get(i), types.get(i));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testWildcardsAreDistinct() throws Exception {
+        final TypeArgument wildcard1 = TypeArgument.of(true, null, null);
+        final TypeArgument wildcard2 = TypeArgument.of(true, null, null);
+        assertNotSame(wildcard1, wildcard2);
+        assertEquals(wildcard1, wildcard2);
+        final Type list1 = Type.of("List", TypeArguments.of(Arrays.asList(wildcard1)), 0);
+        final Type list2 = Type.of("List", TypeArguments.of(Arrays.asList(wildcard2)), 0);
+        assertNotSame(list1, list2);
+        assertEquals(list1, list2);
+        assertEquals(list1.hashCode(), list2.hashCode());
+    }
+
+    public void testReplaceParams() throws Exception {
+        final Type listOfT = Type.of("List", TypeArguments.of(Arrays.asList(TypeArgument.of("T"))), 0);
+        final Map<String, TypeArgument> mapping = new HashMap<String, TypeArgument>();
+        mapping.put("E", TypeArgument.of("String"));
+        assertSame(listOfT, listOfT.replaceParams(mapping));
+        assertSame(listOfT, listOfT.replaceParams(Collections.<String, TypeArgument>emptyMap()));
+        mapping.put("T", TypeArgument.of("String"));
+        assertSame(Type.of("List", TypeArguments.of(Arrays.asList(TypeArgument.of("String"))), 0),
+                listOfT.replaceParams(mapping));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+
+package org.symqle.parser;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+
+public class SourceTextTest extends TestCase {
+
+    public void testSameAsTokenImages() throws Exception {
+        int checked = 0;
+        for (File dir : new File[] {new File("src/test-data"), new File("src/test-data/model")}) {
+            for (File file : dir.listFiles()) {
+                if (!file.getName().endsWith(".sdl")) {
+                    continue;
+                }
+                final SyntaxTree tree;
+                final Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+                try {
+                    tree = new SyntaxTree(new SymqleParser(reader).SymqleUnit(), file.getName());
+                } catch (ParseException e) {
+                    // some test data are broken on purpose
+                    continue;
+                } finally {
+                    reader.close();
+                }
+                checked += check(tree);
+            }
+        }
+        assertTrue(checked > 0);
+    }
+
+    public void testShellComments() throws Exception {
+        final String source = "# first\n// second\npublic interface A<T> {}\n"
+                + "/* third */ # fourth\n// fifth\npublic class B<T> implements A<T> {\n"
+                + "    public int # sixth\n   seventh() { return 1; }\n}\n";
+        final SyntaxTree tree = new SyntaxTree(new SymqleParser(new StringReader(source)).SymqleUnit(), "Test.sdl");
+        assertTrue(check(tree) > 0);
+        final SyntaxTree b = tree.find("SymqleDeclarationBlock.SymqleDeclaration.NormalClassDeclaration").get(0);
+        assertEquals("// fifth\n", b.getComments());
+        assertTrue(b.getBody(), b.getBody().contains("   seventh() { return 1; }"));
+        assertFalse(b.getBody(), b.getBody().contains("sixth"));
+    }
+
+    public void testLongComment() throws Exception {
+        final StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            source.append("// line ").append(i).append('\n');
+        }
+        source.append("public interface A<T> {}\n");
+        final SyntaxTree tree = new SyntaxTree(
+                new SymqleParser(new StringReader(source.toString())).SymqleUnit(), "Test.sdl");
+        final SyntaxTree a = tree.find("SymqleDeclarationBlock.SymqleDeclaration.SymqleInterfaceDeclaration").get(0);
+        assertEquals(source.toString().trim(), a.getImage());
+        assertEquals(SyntaxTree.collectComments(a.getNode().jjtGetFirstToken()), a.getComments());
+    }
+
+    private static int check(final SyntaxTree tree) {
+        final SimpleNode node = tree.getNode();
+        final Token first = node.jjtGetFirstToken();
+        final Token last = node.jjtGetLastToken();
+        final String comments = SyntaxTree.collectComments(first);
+        final String body = SyntaxTree.collectBody(first, last);
+        assertEquals(tree.toString(), comments, tree.getComments());
+        assertEquals(tree.toString(), body, tree.getBody());
+        assertEquals(tree.toString(), comments + body, tree.getImage());
+        int checked = 1;
+        for (SyntaxTree child : tree.getChildren()) {
+            checked += check(child);
+        }
+        return checked;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+
+package org.symqle.parser;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SyntaxPathTest extends TestCase {
+
+    private SyntaxTree tree;
+
+    @Override
+    protected void setUp() throws Exception {
+        final Reader reader = new InputStreamReader(
+                new FileInputStream(new File("src/test-data/model/Imports.sdl")), "UTF-8");
+        try {
+            tree = new SyntaxTree(new SymqleParser(reader).SymqleUnit(), "Imports.sdl");
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void testCompiledOnce() {
+        assertSame(SyntaxPath.compile("SymqleDeclarationBlock.SymqleDeclaration"),
+                SyntaxPath.compile("SymqleDeclarationBlock.SymqleDeclaration"));
+        assertEquals("^.^.ImportDeclaration", SyntaxPath.compile("^.^.ImportDeclaration").toString());
+    }
+
+    public void testSameAsTreeWalk() {
+        final String[] paths = {
+            "SymqleDeclarationBlock.SymqleDeclaration.NormalClassDeclaration",
+            "SymqleDeclarationBlock.SymqleDeclaration.MethodDeclaration.MethodBody",
+            "SymqleDeclarationBlock.SymqleDeclaration.ProductionDeclaration.ProductionChoice",
+            "SymqleDeclarationBlock.SymqleDeclaration.ProductionDeclaration.ProductionChoice.^.^.^.ImportDeclaration",
+            "SymqleDeclarationBlock.ImportDeclaration",
+        };
+        for (String path : paths) {
+            final List<SyntaxTree> expected = walk(tree, path.split("\\."), 0);
+            final List<SyntaxTree> found = tree.find(path);
+            assertFalse(path, found.isEmpty());
+            assertEquals(path, toStrings(expected), toStrings(found));
+        }
+    }
+
+    public void testNoMatch() {
+        assertEquals(1, tree.find("").size());
+        assertEquals(1, tree.find(null).size());
+        assertTrue(tree.find("^").isEmpty());
+        assertTrue(tree.find("NoSuchNode").isEmpty());
+        assertTrue(tree.find("SymqleDeclarationBlock.NoSuchNode").isEmpty());
+    }
+
+    private static List<SyntaxTree> walk(final SyntaxTree node, final String[] names, final int step) {
+        final List<SyntaxTree> result = new ArrayList<SyntaxTree>();
+        if (step == names.length) {
+            result.add(node);
+        } else if (names[step].equals("^")) {
+            if (node.getParent() != null) {
+                result.addAll(walk(node.getParent(), names, step + 1));
+            }
+        } else {
+            for (SyntaxTree child : node.getChildren()) {
+                if (child.getType().equals(names[step])) {
+                    result.addAll(walk(child, names, step + 1));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<String> toStrings(final List<SyntaxTree> nodes) {
+        final List<String> strings = new ArrayList<String>();
+        for (SyntaxTree node : nodes) {
+            strings.add(node.getType() + "@" + node.getLine() + ":" + node.getColumn() + " " + node.getBody());
+        }
+        return strings;
+    }
+}
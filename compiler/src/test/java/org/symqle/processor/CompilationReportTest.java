@@ -0,0 +1,120 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.processor;
+
+import junit.framework.TestCase;
+import org.symqle.model.Model;
+import org.symqle.util.ModelUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class CompilationReportTest extends TestCase {
+
+    public void testPhases() throws Exception {
+        final Model model = ModelUtils.prepareModel();
+        final CompilationReport report = model.getReport();
+        final List<CompilationReport.Phase> phases = report.getPhases();
+        assertEquals(2, phases.size());
+        assertEquals("InterfaceDeclarationsProcessor", phases.get(0).getName());
+        assertEquals("ClassDeclarationProcessor", phases.get(1).getName());
+        assertTrue(phases.get(1).getWallNanos() >= 0);
+        assertSame(phases.get(1), report.getPhase("ClassDeclarationProcessor"));
+        assertNull(report.getPhase("FinalizationProcessor"));
+    }
+
+    public void testTasksInOtherThreads() throws Exception {
+        final CompilationReport report = new CompilationReport();
+        final CompilationReport.Measurement measurement = report.start("tasks");
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final int size = executor.submit(measurement.measured(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return new byte[1 << 20].length;
+                }
+            })).get();
+            assertEquals(1 << 20, size);
+        } finally {
+            executor.shutdownNow();
+        }
+        final CompilationReport.Phase phase = measurement.finish();
+        if (phase.getAllocatedBytes() != -1) {
+            assertTrue(phase.getAllocatedBytes() >= 1 << 20);
+        }
+    }
+
+    public void testParallelParsing() throws Exception {
+        final File[] sources = {
+            new File("src/test-data/model/CommonClasses.sdl"),
+            new File("src/test-data/model/ProductionWithNonTrivialInheritance.sdl")
+        };
+        final File workDir = Files.createTempDirectory("symqle").toFile();
+        try {
+            final CompilationReport report = new SymqleCompiler(2, 2, null)
+                    .doAll(sources, new File(workDir, "main"), new File(workDir, "test"));
+            // the calling thread only waits for parser and writer threads; their usage should be counted
+            final CompilationReport.Phase parse = report.getPhase("parse");
+            if (parse.getAllocatedBytes() != -1) {
+                // each parser allocates buffers of its character stream, about 40K
+                assertTrue(parse.getAllocatedBytes() > 64 * 1024);
+            }
+            if (parse.getCpuNanos() != -1) {
+                assertTrue(parse.getCpuNanos() > 0);
+            }
+            final CompilationReport.Phase generation = report.getPhase("CoreGenerator");
+            if (generation.getAllocatedBytes() != -1) {
+                // each file is rendered to a 16K buffer
+                assertTrue(generation.getAllocatedBytes()
+                        >= 16 * 1024 * report.getStatistics().get("CoreGenerator.filesWritten"));
+            }
+        } finally {
+            delete(workDir);
+        }
+    }
+
+    public void testJson() throws Exception {
+        final CompilationReport report = new CompilationReport();
+        assertEquals("{\n  \"phases\": [],\n  \"statistics\": {}\n}\n", report.toJson());
+        final CompilationReport.Phase phase = report.start("a \"quoted\" phase").finish();
+        report.addStatistic("classes", 3);
+        report.addStatistic("interfaces", 2);
+        assertEquals("{\n  \"phases\": [\n"
+                + "    {\"name\": \"a \\\"quoted\\\" phase\", \"wallNanos\": " + phase.getWallNanos()
+                + ", \"cpuNanos\": " + phase.getCpuNanos()
+                + ", \"allocatedBytes\": " + phase.getAllocatedBytes() + "}\n"
+                + "  ],\n"
+                + "  \"statistics\": {\n"
+                + "    \"classes\": 3,\n"
+                + "    \"interfaces\": 2\n"
+                + "  }\n}\n", report.toJson());
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,149 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+
+package org.symqle.processor;
+
+import junit.framework.TestCase;
+import org.symqle.model.AnonymousClass;
+import org.symqle.model.MethodDefinition;
+import org.symqle.model.Model;
+import org.symqle.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ConcurrentCompilationTest extends TestCase {
+
+    private File workDir;
+    private File[] sources;
+
+    @Override
+    protected void setUp() throws Exception {
+        workDir = Files.createTempDirectory("symqle").toFile();
+        sources = new File[] {
+            new File("src/test-data/model/CommonClasses.sdl"),
+            new File("src/test-data/model/BasicProduction.sdl")
+        };
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(workDir);
+    }
+
+    public void testConcurrentCompilations() throws Exception {
+        final List<String> anonymousClassNames = anonymousClassNames();
+        final File[] outputs = new File[] {new File(workDir, "first"), new File(workDir, "second")};
+        final List<List<String>> logs = new ArrayList<List<String>>();
+        final Exception[] failures = new Exception[outputs.length];
+        final Thread[] threads = new Thread[outputs.length];
+        for (int i = 0; i < outputs.length; i++) {
+            final int index = i;
+            final List<String> log = Collections.synchronizedList(new ArrayList<String>());
+            logs.add(log);
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Log.setLog(new Log() {
+                        @Override
+                        public void logInfo(final String message) {
+                            log.add(message);
+                        }
+
+                        @Override
+                        public void logDebug(final String message) {
+                        }
+                    });
+                    try {
+                        new SymqleCompiler(2, 2).doAll(sources, new File(outputs[index], "main"),
+                                new File(outputs[index], "test"));
+                    } catch (Exception e) {
+                        failures[index] = e;
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (int i = 0; i < outputs.length; i++) {
+            threads[i].join();
+            if (failures[i] != null) {
+                throw failures[i];
+            }
+        }
+        assertSameFiles(outputs[0], outputs[1]);
+        assertEquals(logs.get(0), logs.get(1));
+        assertTrue(logs.get(0).contains("STARTING FinalizationProcessor"));
+        // names are not affected by compilations, which ran in this JVM before
+        assertEquals(anonymousClassNames, anonymousClassNames());
+    }
+
+    public void testAnonymousClassNames() throws Exception {
+        // anonymous$0 to anonymous$2 are taken by the model
+        assertEquals("[forReadOnly, forUpdate, anonymous$3]", anonymousClassNames().toString());
+        assertEquals("[forReadOnly, forUpdate, anonymous$3]", anonymousClassNames().toString());
+    }
+
+    /**
+     * Names of anonymous classes implementing explicit Symqle methods followed by the next anonymous class name.
+     */
+    private List<String> anonymousClassNames() throws Exception {
+        final Model model = new Model();
+        new FinalizationProcessor().process(new SymqleCompiler(1).parse(sources), model);
+        final List<String> names = new ArrayList<String>();
+        for (MethodDefinition method : model.getExplicitSymqleMethods()) {
+            final AnonymousClass anonymousClass = model.getAnonymousClassByMethod(method);
+            if (anonymousClass != null) {
+                names.add(anonymousClass.getName());
+            }
+        }
+        Collections.sort(names);
+        names.add(model.nextAnonymousClassName());
+        return names;
+    }
+
+    private static void assertSameFiles(final File expected, final File actual) throws IOException {
+        final String[] names = expected.list();
+        Arrays.sort(names);
+        final String[] actualNames = actual.list();
+        Arrays.sort(actualNames);
+        assertEquals(Arrays.asList(names), Arrays.asList(actualNames));
+        for (String name : names) {
+            final File expectedFile = new File(expected, name);
+            if (expectedFile.isDirectory()) {
+                assertSameFiles(expectedFile, new File(actual, name));
+            } else {
+                assertTrue(name, Arrays.equals(Files.readAllBytes(expectedFile.toPath()),
+                        Files.readAllBytes(new File(actual, name).toPath())));
+            }
+        }
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
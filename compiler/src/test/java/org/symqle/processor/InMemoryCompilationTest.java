@@ -0,0 +1,196 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.processor;
+
+import junit.framework.TestCase;
+import org.symqle.generator.GeneratedSources;
+import org.symqle.generator.JavacException;
+import org.symqle.parser.ParseException;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class InMemoryCompilationTest extends TestCase {
+
+    private Map<String, String> sources;
+
+    @Override
+    protected void setUp() throws Exception {
+        sources = new LinkedHashMap<String, String>();
+        sources.put("CommonClasses.sdl", new String(
+                Files.readAllBytes(new File("src/test-data/model/CommonClasses.sdl").toPath()), "UTF-8"));
+        sources.put("Extra.sdl", "public interface Lonely<T> {}\n");
+    }
+
+    public void testSameAsFiles() throws Exception {
+        final GeneratedSources generated = new SymqleCompiler(1).compileStrings(sources);
+        assertTrue(generated.getMain().containsKey("org.symqle.sql.Lonely"));
+        assertNotNull(generated.getReport().getPhase("CoreGenerator"));
+
+        final File workDir = Files.createTempDirectory("symqle").toFile();
+        try {
+            final File[] files = new File[sources.size()];
+            int i = 0;
+            for (Map.Entry<String, String> entry : sources.entrySet()) {
+                files[i] = new File(workDir, entry.getKey());
+                Files.write(files[i++].toPath(), entry.getValue().getBytes("UTF-8"));
+            }
+            final File output = new File(workDir, "main");
+            new SymqleCompiler(1).doAll(files, output, new File(workDir, "test"));
+            for (Map.Entry<String, CharSequence> entry : generated.getMain().entrySet()) {
+                final File file = new File(output, entry.getKey().replace('.', '/') + ".java");
+                assertEquals(entry.getKey(), new String(Files.readAllBytes(file.toPath()), "UTF-8"),
+                        entry.getValue().toString());
+            }
+            assertEquals(generated.getMain().size(), new File(output, "org/symqle/sql").list().length);
+        } finally {
+            delete(workDir);
+        }
+    }
+
+    public void testFullParsing() throws Exception {
+        final GeneratedSources lexical = new SymqleCompiler(1).compileStrings(sources);
+        final GeneratedSources full = new SymqleCompiler(1, 1, null, true).compileStrings(sources);
+        assertEquals(toStrings(lexical.getMain()), toStrings(full.getMain()));
+        assertEquals(toStrings(lexical.getTest()), toStrings(full.getTest()));
+    }
+
+    public void testFullParsingValidatesBodies() throws Exception {
+        final Map<String, String> broken = new LinkedHashMap<String, String>(sources);
+        broken.put("Broken.sdl", "public class Broken {\n    public int value() { if (x { return 1; } }\n}\n");
+        final GeneratedSources generated = new SymqleCompiler(1).compileStrings(broken);
+        assertTrue(generated.getMain().get("org.symqle.sql.Broken").toString().contains("if (x { return 1; }"));
+        try {
+            new SymqleCompiler(1, 1, null, true).compileStrings(broken);
+            fail("ParseException expected");
+        } catch (ParseException e) {
+            // expected
+        }
+    }
+
+    public void testUnbalancedBraces() throws Exception {
+        try {
+            new SymqleCompiler(1).compileStrings(Collections.singletonMap("Broken.sdl",
+                    "public class Broken {\n    public int value() { { { return 1; }\n}\n"));
+            fail("ParseException expected");
+        } catch (ParseException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("unbalanced braces"));
+        }
+    }
+
+    private static Map<String, String> toStrings(final Map<String, ? extends CharSequence> sources) {
+        final Map<String, String> strings = new LinkedHashMap<String, String>();
+        for (Map.Entry<String, ? extends CharSequence> entry : sources.entrySet()) {
+            strings.put(entry.getKey(), entry.getValue().toString());
+        }
+        return strings;
+    }
+
+    public void testJavaFileObjects() throws Exception {
+        final GeneratedSources generated = new SymqleCompiler(1).compileStrings(sources);
+        final List<JavaFileObject> lonely = new ArrayList<JavaFileObject>();
+        for (JavaFileObject fileObject : generated.getMainFileObjects()) {
+            if (fileObject.isNameCompatible("Lonely", JavaFileObject.Kind.SOURCE)) {
+                lonely.add(fileObject);
+            }
+        }
+        assertEquals(1, lonely.size());
+        assertEquals("string:///org/symqle/sql/Lonely.java", lonely.get(0).toUri().toString());
+        final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        final File classes = Files.createTempDirectory("symqle").toFile();
+        try {
+            assertTrue(javac.getTask(null, null, null, Arrays.asList("-d", classes.getPath()), null, lonely).call());
+            assertTrue(new File(classes, "org/symqle/sql/Lonely.class").exists());
+        } finally {
+            delete(classes);
+        }
+    }
+
+    public void testCompileClasses() throws Exception {
+        final File workDir = Files.createTempDirectory("symqle").toFile();
+        try {
+            final File source = new File(workDir, "Calculator.sdl");
+            Files.write(source.toPath(), SELF_CONTAINED.replace("BODY", "return x * 2;").getBytes("UTF-8"));
+            final File classes = new File(workDir, "classes");
+            final CompilationReport report = new SymqleCompiler(1).compileClasses(new File[] {source},
+                    classes, new File(workDir, "test-classes"), Collections.<File>emptyList());
+            assertTrue(new File(classes, "org/symqle/sql/Calculator.class").exists());
+            assertFalse(new File(workDir, "org").exists());
+            assertNotNull(report.getPhase("javac"));
+        } finally {
+            delete(workDir);
+        }
+    }
+
+    public void testJavacErrorsReferToSdl() throws Exception {
+        final File workDir = Files.createTempDirectory("symqle").toFile();
+        try {
+            final File source = new File(workDir, "Calculator.sdl");
+            Files.write(source.toPath(), SELF_CONTAINED.replace("BODY", "return \"x\";").getBytes("UTF-8"));
+            new SymqleCompiler(1).compileClasses(new File[] {source},
+                    new File(workDir, "classes"), new File(workDir, "test-classes"), Collections.<File>emptyList());
+            fail("JavacException expected");
+        } catch (JavacException e) {
+            assertEquals(1, e.getErrors().size());
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Calculator.sdl:17: "));
+            assertTrue(e.getMessage(), e.getMessage().contains("[org.symqle.sql.Calculator:"));
+        } finally {
+            delete(workDir);
+        }
+    }
+
+    private static final String SELF_CONTAINED =
+            "public final class Symqle {\n"
+            + "    private Symqle() {}\n"
+            + "}\n"
+            + "\n"
+            + "public interface Dialect {\n"
+            + "}\n"
+            + "\n"
+            + "public class GenericDialect implements Dialect {\n"
+            + "    private static final GenericDialect instance = new GenericDialect();\n"
+            + "    private GenericDialect() {}\n"
+            + "    public static Dialect get() {\n"
+            + "         return instance;\n"
+            + "    }\n"
+            + "}\n"
+            + "\n"
+            + "public class Calculator {\n"
+            + "    public int twice(final int x) {\n"
+            + "        BODY\n"
+            + "    }\n"
+            + "}\n";
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
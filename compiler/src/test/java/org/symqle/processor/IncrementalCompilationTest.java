@@ -0,0 +1,263 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.processor;
+
+import junit.framework.TestCase;
+import org.symqle.generator.DependencyGraph;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+
+public class IncrementalCompilationTest extends TestCase {
+
+    private File workDir;
+    private File[] sources;
+    private File outputDirectory;
+    private File testOutputDirectory;
+    private File dependencyFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        workDir = Files.createTempDirectory("symqle").toFile();
+        final File common = new File(workDir, "CommonClasses.sdl");
+        final File production = new File(workDir, "ProductionWithNonTrivialInheritance.sdl");
+        Files.copy(new File("src/test-data/model/CommonClasses.sdl").toPath(), common.toPath());
+        Files.copy(new File("src/test-data/model/ProductionWithNonTrivialInheritance.sdl").toPath(),
+                production.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        final File extra = new File(workDir, "Extra.sdl");
+        write(extra, "public interface Lonely<T> {}\n");
+        sources = new File[] {common, production, extra};
+        outputDirectory = new File(workDir, "main");
+        testOutputDirectory = new File(workDir, "test");
+        dependencyFile = new File(workDir, "symqle.deps");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(workDir);
+    }
+
+    public void testIncremental() throws Exception {
+        final CompilationReport full = compile();
+        final long total = full.getStatistics().get("typesWritten");
+        assertTrue(total > 2);
+        assertEquals(0L, (long) full.getStatistics().get("typesSkipped"));
+        write(new File(outputDirectory, "org/symqle/sql/Custom.java"), "class Custom {}\n");
+        final DependencyGraph graph = DependencyGraph.load(dependencyFile);
+        assertEquals("[Extra.sdl]", graph.getSources("main", "org.symqle.sql.Lonely").toString());
+        assertTrue(graph.getSources("main", "org.symqle.sql.Symqle")
+                .contains("ProductionWithNonTrivialInheritance.sdl"));
+
+        final Map<String, Long> unchanged = compile().getStatistics();
+        assertEquals(0L, (long) unchanged.get("typesWritten"));
+        assertEquals(total, (long) unchanged.get("typesSkipped"));
+
+        // touching without changing content does not make the source changed
+        assertTrue(sources[0].setLastModified(sources[0].lastModified() + 10000));
+        assertEquals(0L, (long) compile().getStatistics().get("typesWritten"));
+
+        write(sources[2], "public interface Lonely<T> {}\n\npublic interface Other {}\n");
+        final Map<String, Long> added = compile().getStatistics();
+        assertEquals(2L, (long) added.get("typesWritten"));
+        assertTrue(new File(outputDirectory, "org/symqle/sql/Other.java").exists());
+
+        write(sources[2], "public interface Lonely<T> {}\n");
+        final Map<String, Long> removed = compile().getStatistics();
+        assertEquals(1L, (long) removed.get("typesWritten"));
+        assertEquals(1L, (long) removed.get("filesDeleted"));
+        assertFalse(new File(outputDirectory, "org/symqle/sql/Other.java").exists());
+        // files not produced by the compiler are left alone
+        assertTrue(new File(outputDirectory, "org/symqle/sql/Custom.java").exists());
+
+        // missing output is regenerated
+        assertTrue(new File(outputDirectory, "org/symqle/sql/Pair.java").delete());
+        assertEquals(1L, (long) compile().getStatistics().get("typesWritten"));
+        assertTrue(new File(outputDirectory, "org/symqle/sql/Pair.java").exists());
+    }
+
+    public void testUnmodifiedSourcesAreNotHashed() throws Exception {
+        compile();
+        // replace stored hash of Extra.sdl; it is trusted while size and modification time are the same
+        final String graph = new String(Files.readAllBytes(dependencyFile.toPath()), "UTF-8");
+        final String tampered = graph.replaceAll("(?m)^(source\\tExtra\\.sdl\\t\\d+\\t\\d+\\t)\\w+$", "$1stale");
+        assertFalse(graph.equals(tampered));
+        write(dependencyFile, tampered);
+        assertEquals(0L, (long) compile().getStatistics().get("typesWritten"));
+
+        // touched source is hashed again
+        assertTrue(sources[2].setLastModified(sources[2].lastModified() + 10000));
+        assertEquals(1L, (long) compile().getStatistics().get("typesWritten"));
+    }
+
+    public void testOtherCompilerBuildWritesAll() throws Exception {
+        final long total = compile().getStatistics().get("typesWritten");
+        assertEquals(SymqleCompiler.compilerBuild(), DependencyGraph.load(dependencyFile).getCompilerBuild());
+        assertEquals(0L, (long) compile().getStatistics().get("typesWritten"));
+
+        // a snapshot build has the same version, but it is another build
+        final String graph = new String(Files.readAllBytes(dependencyFile.toPath()), "UTF-8");
+        write(dependencyFile, graph.replace(SymqleCompiler.compilerBuild(),
+                SymqleCompiler.COMPILER_VERSION + " other"));
+        final Map<String, Long> rebuilt = compile().getStatistics();
+        assertEquals(total, (long) rebuilt.get("typesWritten"));
+        assertEquals(0L, (long) rebuilt.get("typesSkipped"));
+    }
+
+    public void testAmbiguityIsTracked() throws Exception {
+        final File i = new File(workDir, "I.sdl");
+        final File j = new File(workDir, "J.sdl");
+        write(i, "public interface X {}\n\npublic interface Y {}\n\n"
+                + ":: String foo(final X x) { return \"x\"; }\n");
+        write(j, "public interface Z {}\n");
+        sources = new File[] {sources[0], i, j};
+        compile();
+        assertTrue(read(new File(outputDirectory, "org/symqle/sql/X.java")).contains("foo()"));
+
+        // foo(Y) makes foo(X) ambiguous, so X has no foo() any more
+        write(j, "public interface Z {}\n\n:: String foo(final Y y) { return \"y\"; }\n");
+        compile();
+        assertSameOutput();
+        assertFalse(read(new File(outputDirectory, "org/symqle/sql/X.java")).contains("foo()"));
+
+        write(j, "public interface Z {}\n");
+        compile();
+        assertSameOutput();
+        assertTrue(read(new File(outputDirectory, "org/symqle/sql/X.java")).contains("foo()"));
+    }
+
+    public void testRulesFromOtherSourcesAreTracked() throws Exception {
+        final File a = new File(workDir, "A.sdl");
+        final File b = new File(workDir, "B.sdl");
+        write(a, "public interface zA<T> : QueryBuilder<T> {}\n\n"
+                + "public interface zB<T> : QueryBuilder<T> {}\n\n"
+                + "public interface zC<T> : QueryBuilder<T> {}\n");
+        write(b, "<T> zA<T> ::= b:zB<T>\n    :: implicit\n;\n");
+        sources = new File[] {sources[0], a, b};
+        compile();
+        assertFalse(read(new File(outputDirectory, "org/symqle/sql/zA.java")).contains("FOR UPDATE"));
+
+        // the rule changes javadoc of zA, which is declared in another source
+        write(b, "<T> zA<T> ::= b:zB<T>\n    :: implicit\n\n"
+                + "| c:zC<T> FOR UPDATE\n    :: public zA<T> forUpdate\n;\n");
+        compile();
+        assertSameOutput();
+        assertTrue(read(new File(outputDirectory, "org/symqle/sql/zA.java")).contains("FOR UPDATE"));
+    }
+
+    public void testUnchangedFilesKeepTimestamps() throws Exception {
+        final SymqleCompiler compiler = new SymqleCompiler(1);
+        final Map<String, Long> first = compiler.doAll(sources, outputDirectory, testOutputDirectory).getStatistics();
+        final long total = first.get("CoreGenerator.filesWritten");
+        assertEquals(0L, (long) first.get("CoreGenerator.filesUnchanged"));
+        final File pair = new File(outputDirectory, "org/symqle/sql/Pair.java");
+        final File lonely = new File(outputDirectory, "org/symqle/sql/Lonely.java");
+        assertTrue(pair.setLastModified(1000000000000L));
+        assertTrue(lonely.setLastModified(1000000000000L));
+
+        write(sources[2], "public interface Lonely<T, U> {}\n");
+        final Map<String, Long> second = compiler.doAll(sources, outputDirectory, testOutputDirectory).getStatistics();
+        assertEquals(1L, (long) second.get("CoreGenerator.filesWritten"));
+        assertEquals(total - 1, (long) second.get("CoreGenerator.filesUnchanged"));
+        assertEquals(1000000000000L, pair.lastModified());
+        assertTrue(lonely.lastModified() > 1000000000000L);
+    }
+
+    public void testRepeatedCompilationWritesNothing() throws Exception {
+        final File[] generics = new File[] {
+            new File("src/test-data/model/CommonClasses.sdl"),
+            new File("src/test-data/model/GenericsInImplicits.sdl")
+        };
+        // the same compiler in the same JVM, as in compiler daemon or watch mode
+        final SymqleCompiler compiler = new SymqleCompiler(1);
+        final Map<String, Long> first = compiler.doAll(generics, outputDirectory, testOutputDirectory)
+                .getStatistics();
+        assertTrue(first.get("CoreGenerator.filesWritten") > 0);
+        for (int i = 0; i < 3; i++) {
+            final Map<String, Long> next = compiler.doAll(generics, outputDirectory, testOutputDirectory)
+                    .getStatistics();
+            assertEquals(0L, (long) next.get("CoreGenerator.filesWritten"));
+            assertEquals(0L, (long) next.get("TestSetGenerator.filesWritten"));
+        }
+    }
+
+    private CompilationReport compile() throws Exception {
+        return new SymqleCompiler(1).doAll(sources, outputDirectory, testOutputDirectory, dependencyFile);
+    }
+
+    private static void write(final File file, final String content) throws IOException {
+        final long previousModification = file.lastModified();
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        // make the change visible even if file system timestamps are coarse
+        file.setLastModified(Math.max(file.lastModified(), previousModification + 2000));
+    }
+
+    /**
+     * Compares incremental output with output of full compilation of the same sources.
+     */
+    private void assertSameOutput() throws Exception {
+        final File fullOutputDirectory = new File(workDir, "full-main");
+        final File fullTestOutputDirectory = new File(workDir, "full-test");
+        delete(fullOutputDirectory);
+        delete(fullTestOutputDirectory);
+        new SymqleCompiler(1).doAll(sources, fullOutputDirectory, fullTestOutputDirectory);
+        assertSameFiles(fullOutputDirectory, outputDirectory);
+        assertSameFiles(fullTestOutputDirectory, testOutputDirectory);
+    }
+
+    private static void assertSameFiles(final File expected, final File actual) throws IOException {
+        final String[] expectedNames = expected.list();
+        final String[] actualNames = actual.list();
+        Arrays.sort(expectedNames);
+        Arrays.sort(actualNames);
+        assertEquals(actual.getPath(), Arrays.asList(expectedNames), Arrays.asList(actualNames));
+        for (String name : expectedNames) {
+            final File expectedChild = new File(expected, name);
+            final File actualChild = new File(actual, name);
+            if (expectedChild.isDirectory()) {
+                assertSameFiles(expectedChild, actualChild);
+            } else {
+                assertEquals(actualChild.getPath(), read(expectedChild), read(actualChild));
+            }
+        }
+    }
+
+    private static String read(final File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), "UTF-8");
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+
+package org.symqle.processor;
+
+import junit.framework.TestCase;
+import org.symqle.parser.ParseException;
+import org.symqle.parser.SyntaxTree;
+import org.symqle.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ParallelParsingTest extends TestCase {
+
+    private File workDir;
+    private final List<String> log = Collections.synchronizedList(new ArrayList<String>());
+    private Log previousLog;
+
+    @Override
+    protected void setUp() throws Exception {
+        workDir = Files.createTempDirectory("symqle").toFile();
+        previousLog = Log.setLog(new Log() {
+            @Override
+            public void logInfo(final String message) {
+                log.add(message);
+            }
+
+            @Override
+            public void logDebug(final String message) {
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Log.setLog(previousLog);
+        delete(workDir);
+    }
+
+    public void testSameAsSequential() throws Exception {
+        final File[] sources = {
+            new File("src/test-data/model/CommonClasses.sdl"),
+            new File("src/test-data/model/BasicProduction.sdl")
+        };
+        final List<SyntaxTree> sequential = new SymqleCompiler(1).parse(sources);
+        final List<SyntaxTree> parallel = new SymqleCompiler(4).parse(sources);
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sources.length; i++) {
+            assertEquals(sequential.get(i).getImage(), parallel.get(i).getImage());
+        }
+    }
+
+    public void testFirstErrorInSourceOrder() throws Exception {
+        final StringBuilder longSource = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            longSource.append("public interface Valid").append(i).append("<T> {}\n");
+        }
+        longSource.append("public interface Broken {\n");
+        final File good = write("Good.sdl", "public interface Good<T> {}\n");
+        // parsing of the first broken source takes longer, so its error is usually found later
+        final File first = write("First.sdl", longSource.toString());
+        final File second = write("Second.sdl", "public interface {}\n");
+        final File[] sources = {good, first, second};
+        final String expected = failure(new SymqleCompiler(1), sources).getMessage();
+        log.clear();
+        final ParseException parallel = failure(new SymqleCompiler(3), sources);
+        assertEquals(expected, parallel.getMessage());
+        assertEquals(Collections.singletonList(expected + " [First.sdl]"), log);
+    }
+
+    private static ParseException failure(final SymqleCompiler compiler, final File[] sources) throws IOException {
+        try {
+            compiler.parse(sources);
+            fail("ParseException expected");
+            return null;
+        } catch (ParseException e) {
+            return e;
+        }
+    }
+
+    private File write(final String name, final String content) throws IOException {
+        final File file = new File(workDir, name);
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+
+package org.symqle.processor;
+
+import junit.framework.TestCase;
+import org.symqle.parser.SymqleParser;
+import org.symqle.parser.SyntaxTree;
+
+import java.io.File;
+
+public class SourceCacheTest extends TestCase {
+
+    public void testLeastRecentlyUsedDropped() throws Exception {
+        final SyntaxTree tree = new SyntaxTree(
+                SymqleParser.createParser("public interface A<T> {}\n").SymqleUnit(), "A.sdl");
+        final SourceCache cache = new SourceCache(100);
+        final File a = new File("a/A.sdl");
+        final File b = new File("b/A.sdl");
+        final File c = new File("c/A.sdl");
+        cache.put(a, "1", 40, tree);
+        cache.put(b, "1", 40, tree);
+        assertSame(tree, cache.get(a, "1"));
+        cache.put(c, "1", 40, tree);
+        assertEquals(2, cache.size());
+        assertSame(tree, cache.get(a, "1"));
+        assertNull(cache.get(b, "1"));
+        assertSame(tree, cache.get(c, "1"));
+        assertNull(cache.get(c, "2"));
+
+        // replacing an entry does not count it twice
+        cache.put(c, "2", 40, tree);
+        assertEquals(2, cache.size());
+
+        // a source larger than the limit is kept alone
+        cache.put(b, "1", 1000, tree);
+        assertEquals(1, cache.size());
+        assertSame(tree, cache.get(b, "1"));
+    }
+}
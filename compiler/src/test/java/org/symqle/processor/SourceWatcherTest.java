@@ -0,0 +1,118 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.processor;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+
+public class SourceWatcherTest extends TestCase {
+
+    private static final long TIMEOUT_MILLIS = 20000;
+
+    private File workDir;
+    private File sourceDirectory;
+    private File outputDirectory;
+
+    @Override
+    protected void setUp() throws Exception {
+        workDir = Files.createTempDirectory("symqle").toFile();
+        sourceDirectory = new File(workDir, "src");
+        assertTrue(sourceDirectory.mkdir());
+        Files.copy(new File("src/test-data/model/CommonClasses.sdl").toPath(),
+                new File(sourceDirectory, "CommonClasses.sdl").toPath());
+        write(new File(sourceDirectory, "Extra.sdl"), "public interface Lonely<T> {}\n");
+        outputDirectory = new File(workDir, "main");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(workDir);
+    }
+
+    public void testCompile() throws Exception {
+        final SourceWatcher watcher = new SourceWatcher(sourceDirectory, outputDirectory, new File(workDir, "test"),
+                SourceWatcher.DEFAULT_DEBOUNCE_MILLIS);
+        assertEquals(0L, (long) watcher.compile().getStatistics().get("sourcesReused"));
+        assertTrue(new File(outputDirectory, "org/symqle/sql/Lonely.java").exists());
+        assertEquals(2L, (long) watcher.compile().getStatistics().get("sourcesReused"));
+    }
+
+    public void testWatch() throws Exception {
+        final SourceWatcher watcher = new SourceWatcher(sourceDirectory, outputDirectory, new File(workDir, "test"),
+                50);
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    watcher.watch();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                } catch (InterruptedException e) {
+                    // stopped
+                }
+            }
+        });
+        thread.start();
+        try {
+            final File other = new File(outputDirectory, "org/symqle/sql/Other.java");
+            waitFor(watcher, 1);
+            assertFalse(other.exists());
+            write(new File(sourceDirectory, "Extra.sdl"), "public interface Lonely<T> {}\npublic interface Other {}\n");
+            final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (!other.exists() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(other.exists());
+        } finally {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    private static void waitFor(final SourceWatcher watcher, final int cycles) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (watcher.getCycles() < cycles && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(cycles, watcher.getCycles());
+    }
+
+    private static void write(final File file, final String content) throws IOException {
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
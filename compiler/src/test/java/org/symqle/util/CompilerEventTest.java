@@ -0,0 +1,98 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.util;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CompilerEventTest extends TestCase {
+
+    private static final String[] EVENT_NAMES = {
+        "org.symqle.Phase", "org.symqle.Parse", "org.symqle.FileWritten"
+    };
+
+    public void testCommit() throws Exception {
+        // must work whether or not flight recorder is available and recording
+        commitEvents();
+    }
+
+    public void testRecording() throws Exception {
+        final Class<?> recordingClass;
+        try {
+            recordingClass = Class.forName("jdk.jfr.Recording");
+        } catch (ClassNotFoundException e) {
+            // no flight recorder in this JVM: nothing to check
+            return;
+        }
+        final Object recording = recordingClass.newInstance();
+        final File dump = File.createTempFile("symqle", ".jfr");
+        try {
+            for (String name : EVENT_NAMES) {
+                recordingClass.getMethod("enable", String.class).invoke(recording, name);
+            }
+            recordingClass.getMethod("start").invoke(recording);
+            commitEvents();
+            recordingClass.getMethod("stop").invoke(recording);
+            recordingClass.getMethod("dump", Path.class).invoke(recording, dump.toPath());
+            final List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+                    .getMethod("readAllEvents", Path.class).invoke(null, dump.toPath());
+            final List<String> recorded = new ArrayList<String>();
+            for (Object event : events) {
+                final Object eventType = invoke(event, "getEventType");
+                final String name = (String) invoke(eventType, "getName");
+                if (Arrays.asList(EVENT_NAMES).contains(name)) {
+                    recorded.add(name + " " + field(event, "typeName") + " " + field(event, "file")
+                            + " " + field(event, "bytes"));
+                }
+            }
+            // events of a dump are not necessarily in commit order
+            Collections.sort(recorded);
+            assertEquals(Arrays.asList(
+                    "org.symqle.FileWritten Dialect org/symqle/sql/Dialect.java 194",
+                    "org.symqle.Parse null Archetypes.sdl 1024",
+                    "org.symqle.Phase ClassEnhancer null 0"),
+                    recorded);
+        } finally {
+            recordingClass.getMethod("close").invoke(recording);
+            Files.deleteIfExists(dump.toPath());
+        }
+    }
+
+    private static void commitEvents() {
+        CompilerEvent.phase("ClassEnhancer").commit();
+        CompilerEvent.parse("Archetypes.sdl").bytes(1024).commit();
+        CompilerEvent.fileWritten("Dialect", "org/symqle/sql/Dialect.java").bytes(194).commit();
+    }
+
+    private static Object field(final Object event, final String name) throws Exception {
+        return event.getClass().getMethod("getValue", String.class).invoke(event, name);
+    }
+
+    private static Object invoke(final Object target, final String methodName) throws Exception {
+        final Method method = target.getClass().getMethod(methodName);
+        method.setAccessible(true);
+        return method.invoke(target);
+    }
+}
@@ -18,6 +18,7 @@ package org.symqle.util;
 
 import junit.framework.TestCase;
 
+import java.util.Arrays;
 import java.util.List;
 
 public class TSortTest extends TestCase {
@@ -65,10 +66,35 @@ public class TSortTest extends TestCase {
             sorted = sort.sort();
             fail("Exception expected but not thrown");
         } catch (IllegalStateException e) {
-            // expected
+            assertEquals("Cyclic dependency: b -> d -> b", e.getMessage());
         }
     }
 
+    public void testDeterministic() throws Exception {
+        TSort<String> sort = new TSort<String>();
+        sort.add("x");
+        sort.add("c", "a");
+        sort.add("b", "a");
+        sort.add("d", "b");
+        sort.add("d", "c");
+        assertEquals(Arrays.asList("x", "a", "c", "b", "d"), sort.sort());
+    }
+
+    public void testLayers() throws Exception {
+        TSort<String> sort = new TSort<String>();
+        sort.add("c", "a");
+        sort.add("b", "a");
+        sort.add("d", "b");
+        sort.add("d", "c");
+        sort.add("e", "a", "d");
+        final List<List<String>> layers = sort.sortLayers();
+        assertEquals(4, layers.size());
+        assertEquals(Arrays.asList("a"), layers.get(0));
+        assertEquals(Arrays.asList("c", "b"), layers.get(1));
+        assertEquals(Arrays.asList("d"), layers.get(2));
+        assertEquals(Arrays.asList("e"), layers.get(3));
+    }
+
     public void testReSort() throws Exception {
         TSort<String> sort = new TSort<String>();
         sort.add("c", "a");
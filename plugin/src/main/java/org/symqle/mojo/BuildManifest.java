@@ -0,0 +1,149 @@
+/*
+   Copyright 2011-2014 Alexander Izyurov
+
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.package org.symqle.common;
+*/
+
+package org.symqle.mojo;
+
+import org.symqle.util.SourceFingerprints;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Inputs of a build: compiler build, configuration and content hashes of sources.
+ * Two manifests with the same inputs produce the same output.
+ * Size and modification time of each source are kept too, so that unchanged files need not be hashed.
+ * @author Alexander Izyurov
+ */
+final class BuildManifest {
+
+    private static final String HEADER = "# symqle build manifest v1";
+    private static final String SEPARATOR = SourceFingerprints.SEPARATOR;
+
+    private final String compilerBuild;
+    private final Map<String, String> configuration;
+    private final SourceFingerprints sources = new SourceFingerprints();
+
+    /**
+     * Constructs a manifest without sources.
+     * @param compilerBuild identity of the compiler build,
+     * see {@link org.symqle.processor.SymqleCompiler#compilerBuild()}
+     * @param configuration configuration parameters, which affect output
+     */
+    BuildManifest(final String compilerBuild, final Map<String, String> configuration) {
+        this.compilerBuild = compilerBuild;
+        this.configuration = new TreeMap<String, String>(configuration);
+    }
+
+    /**
+     * Adds a source. The source is hashed unless previous manifest has an entry for it
+     * with the same size and modification time.
+     * @param source the source file
+     * @param previous previous manifest; may be null
+     * @throws IOException read failure
+     */
+    void addSource(final File source, final BuildManifest previous) throws IOException {
+        sources.add(source, previous == null ? null : previous.sources);
+    }
+
+    /**
+     * Checks whether the other manifest has the same compiler build, configuration and source contents.
+     * Sizes and modification times are not compared.
+     * @param other the manifest to compare with
+     * @return true if the inputs are the same
+     */
+    boolean hasSameInputs(final BuildManifest other) {
+        return compilerBuild.equals(other.compilerBuild)
+                && configuration.equals(other.configuration)
+                && sources.changedSince(other.sources).isEmpty();
+    }
+
+    /**
+     * Checks whether sizes and modification times of all sources are the same as in the other manifest.
+     * @param other the manifest to compare with
+     * @return true if the stored manifest does not need to be refreshed
+     */
+    boolean hasSameTimestamps(final BuildManifest other) {
+        return sources.hasSameTimestamps(other.sources);
+    }
+
+    /**
+     * Writes the manifest to a file.
+     * @param file where to write
+     * @throws IOException write failure
+     */
+    void store(final File file) throws IOException {
+        final PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            out.println(HEADER);
+            out.println("compiler" + SEPARATOR + compilerBuild);
+            for (Map.Entry<String, String> entry : configuration.entrySet()) {
+                out.println("config" + SEPARATOR + entry.getKey() + SEPARATOR + entry.getValue());
+            }
+            sources.store(out);
+        } finally {
+            out.close();
+        }
+        if (out.checkError()) {
+            throw new IOException("Failed to write " + file);
+        }
+    }
+
+    /**
+     * Reads a manifest written by {@link #store(java.io.File)}.
+     * @param file where to read from
+     * @return the manifest; null if the file does not exist or is not a valid manifest
+     * @throws IOException read failure
+     */
+    static BuildManifest load(final File file) throws IOException {
+        final BufferedReader reader;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        try {
+            if (!HEADER.equals(reader.readLine())) {
+                return null;
+            }
+            final String compilerLine = reader.readLine();
+            if (compilerLine == null || !compilerLine.startsWith("compiler" + SEPARATOR)) {
+                return null;
+            }
+            final BuildManifest manifest = new BuildManifest(
+                    compilerLine.substring(("compiler" + SEPARATOR).length()), new TreeMap<String, String>());
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                final String[] fields = SourceFingerprints.split(line);
+                if (fields[0].equals("config") && fields.length == 3) {
+                    manifest.configuration.put(fields[1], fields[2]);
+                } else if (!manifest.sources.load(fields)) {
+                    return null;
+                }
+            }
+            return manifest;
+        } finally {
+            reader.close();
+        }
+    }
+}
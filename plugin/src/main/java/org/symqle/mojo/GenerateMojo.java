@@ -24,17 +24,23 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
+import org.symqle.daemon.DaemonClient;
 import org.symqle.processor.SymqleCompiler;
 import org.symqle.util.Log;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Generates Symqle sources from sdl files.
  */
-@Mojo(name = "generate", requiresProject = true, threadSafe = false, defaultPhase =  LifecyclePhase.GENERATE_SOURCES)
+@Mojo(name = "generate", requiresProject = true, threadSafe = true, defaultPhase =  LifecyclePhase.GENERATE_SOURCES)
 public class GenerateMojo
     extends AbstractMojo
 {
@@ -68,6 +74,34 @@ public class GenerateMojo
     @Parameter(property = "sourceDirectory", defaultValue = "${basedir}/src/main/symqle")
     private File sourceDirectory;
 
+    /**
+     * If set, timings of compilation phases and model statistics are written to this file as JSON.
+     */
+    @Parameter(property = "symqle.reportFile")
+    private File reportFile;
+
+    /**
+     * If true and a compiler daemon of the same build (version and jar content) is running,
+     * compilation is delegated to it.
+     * The daemon is started by {@code org.symqle.daemon.CompilerDaemon}.
+     */
+    @Parameter(property = "symqle.daemon", defaultValue = "true")
+    private boolean useDaemon;
+
+    /**
+     * The file, where a running compiler daemon publishes its port; .symqle/daemon in user home by default.
+     */
+    @Parameter(property = "symqle.daemonFile")
+    private File daemonFile;
+
+    /**
+     * If true, method bodies and other blocks of implementation code are fully parsed, so that their syntax
+     * is validated. Otherwise they are copied to generated code as text. Compilation is never delegated
+     * to the daemon in this mode.
+     */
+    @Parameter(property = "symqle.validate", defaultValue = "false")
+    private boolean validate;
+
     public void execute()
         throws MojoExecutionException, MojoFailureException
     {
@@ -77,17 +111,22 @@ public class GenerateMojo
         project.addCompileSourceRoot(outputDirectory.getAbsolutePath());
         project.addTestCompileSourceRoot(testOutputDirectory.getAbsolutePath());
 
-        if (isClean()) {
+        final File manifestFile = new File(outputDirectory, "symqle.manifest");
+        final BuildManifest previousManifest = loadManifest(manifestFile);
+        final BuildManifest manifest = currentManifest(previousManifest);
+        if (isClean(manifest, previousManifest, manifestFile)) {
             getLog().info("All files are up to date");
             return;
         } else {
             getLog().info("Changes detected - rebuilding");
         }
+        // the manifest does not describe the output until the build succeeds
+        manifestFile.delete();
 
-        prepareDirectory(outputDirectory);
-        prepareDirectory(testOutputDirectory);
+        // generated files, which are not produced any more, are deleted by the compiler
+        final File dependencyFile = new File(outputDirectory, "symqle.deps");
 
-        Log.setLog(new Log() {
+        final Log mojoLog = new Log() {
             @Override
             public void logInfo(final String s) {
                   getLog().info(s);
@@ -97,41 +136,112 @@ public class GenerateMojo
             public void logDebug(final String s) {
                 getLog().debug(s);
             }
-        });
-        final SymqleCompiler symqleCompiler = new SymqleCompiler();
+        };
+        // bound to this thread, so that modules built in parallel log to their own mojo
+        final Log previousLog = Log.setLog(mojoLog);
+        final String report;
         try {
-            symqleCompiler.doAll(getSources(), outputDirectory, testOutputDirectory);
+            final DaemonClient daemon = useDaemon && !validate ? connectDaemon() : null;
+            if (daemon != null) {
+                getLog().info("Compiling in symqle compiler daemon");
+                report = daemon.compile(getSources(), outputDirectory, testOutputDirectory, dependencyFile, mojoLog);
+            } else {
+                final int threads = Runtime.getRuntime().availableProcessors();
+                final SymqleCompiler symqleCompiler = new SymqleCompiler(threads, threads, null, validate);
+                report = symqleCompiler.doAll(getSources(), outputDirectory, testOutputDirectory, dependencyFile)
+                        .toJson();
+            }
         } catch (Exception e) {
             e.printStackTrace();
             throw new MojoFailureException(e.toString());
+        } finally {
+            Log.setLog(previousLog);
+        }
+        if (reportFile != null) {
+            writeReport(report);
         }
 
-        File marker = new File(outputDirectory, "symqle.built");
-        marker.delete();
         try {
-            marker.createNewFile();
+            manifest.store(manifestFile);
         } catch (IOException e) {
             // ignore - not critical: will cause full rebuild next time
         }
     }
 
-    private boolean isClean() {
-        if (!outputDirectory.exists()) {
-            return false;
+    private DaemonClient connectDaemon() {
+        final File file = daemonFile != null ? daemonFile : DaemonClient.defaultDaemonFile();
+        try {
+            return DaemonClient.connect(file);
+        } catch (IOException e) {
+            getLog().debug("Cannot read " + file + ": " + e);
+            return null;
+        }
+    }
+
+    private void writeReport(final String report) throws MojoExecutionException {
+        final File parent = reportFile.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try {
+            final Writer writer = new OutputStreamWriter(new FileOutputStream(reportFile), "UTF-8");
+            try {
+                writer.write(report);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to write " + reportFile, e);
         }
-        File marker = new File(outputDirectory, "symqle.built");
-        if (!marker.exists()) {
+    }
+
+    private boolean isClean(final BuildManifest manifest,
+                            final BuildManifest previousManifest,
+                            final File manifestFile) {
+        if (previousManifest == null || !manifest.hasSameInputs(previousManifest)) {
             return false;
         }
-        final long markerTs = marker.lastModified();
-        for (File file : getSources()) {
-            if (file.lastModified() > markerTs) {
-                return false;
+        if (!manifest.hasSameTimestamps(previousManifest)) {
+            // sources were touched, but not changed; remember new timestamps to skip hashing next time
+            try {
+                manifest.store(manifestFile);
+            } catch (IOException e) {
+                // ignore - not critical: files will be hashed again next time
             }
         }
         return true;
     }
 
+    private BuildManifest loadManifest(final File manifestFile) {
+        try {
+            return BuildManifest.load(manifestFile);
+        } catch (IOException e) {
+            getLog().debug("Cannot read " + manifestFile + ": " + e);
+            return null;
+        }
+    }
+
+    private BuildManifest currentManifest(final BuildManifest previousManifest) throws MojoExecutionException {
+        final Map<String, String> configuration = new TreeMap<String, String>();
+        configuration.put("outputDirectory", outputDirectory.getAbsolutePath());
+        configuration.put("testOutputDirectory", testOutputDirectory.getAbsolutePath());
+        configuration.put("corePackage", SymqleCompiler.CORE_PACKAGE);
+        configuration.put("testSetPackage", SymqleCompiler.TEST_SET_PACKAGE);
+        if (validate) {
+            // sources, which were not validated, are not up to date
+            configuration.put("validate", "true");
+        }
+        final BuildManifest manifest = new BuildManifest(SymqleCompiler.compilerBuild(), configuration);
+        try {
+            for (File source : getSources()) {
+                manifest.addSource(source, previousManifest);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to read sources", e);
+        }
+        return manifest;
+    }
+
     protected File[] getSources() {
         return sourceDirectory.listFiles(new FilenameFilter() {
                     @Override
@@ -140,21 +250,4 @@ public class GenerateMojo
                     }
                 });
     }
-
-    private void prepareDirectory(final File directory) throws MojoExecutionException {
-        for (File subdir: directory.listFiles()) {
-            deleteRecursively(subdir);
-        }
-    }
-
-    private static void deleteRecursively(File f) throws MojoExecutionException {
-        if (f.isDirectory()) {
-            for (File file: f.listFiles()) {
-                deleteRecursively(file);
-            }
-        }
-        if (!f.delete()) {
-            throw new MojoExecutionException("Failed to delete "+f);
-        }
-    }
 }